@@ -5,59 +5,99 @@ import java.net.*;
 import java.time.Duration;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import com.testlang.runtime.BodyLimit;
+import com.testlang.runtime.BodyMatcher;
+import com.testlang.runtime.ClientExecutors;
+import com.testlang.runtime.ClientWarmup;
+import com.testlang.runtime.LatencyHistogram;
+import com.testlang.runtime.LatencyRecorder;
 
 public class GeneratedTests {
 
-    static String BASE = "http://localhost:8080";
-    static Map<String,String> DEFAULT_HEADERS = new HashMap<>();
+    static final String BASE = "http://localhost:8080";
     static HttpClient client;
 
     @BeforeAll
     static void setup() {
         client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
-        DEFAULT_HEADERS.put("Content-Type","application/json");
-        DEFAULT_HEADERS.put("X-App","TestLangDemo");
+    }
+
+    @AfterAll
+    static void teardown() throws Exception {
+        LatencyRecorder.writeReport();
+    }
+
+    static final class Requests_Login {
+        static final HttpRequest REQ_1 = HttpRequest.newBuilder(URI.create(BASE + "/api/login"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .header("X-App", "TestLangDemo")
+                .POST(HttpRequest.BodyPublishers.ofString("{ \"username\": \"admin\", \"password\": \"1234\" }"))
+                .build();
+        static final LatencyHistogram LATENCY_1 = LatencyRecorder.histogram("GeneratedTests", "Login", "POST /api/login");
+        static final BodyMatcher BODY_1 = new BodyMatcher("\"token\":");
     }
 
     @Test
     void test_Login() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/login"))
-            .timeout(Duration.ofSeconds(10))
-            .POST(HttpRequest.BodyPublishers.ofString("{ \"username\": \"admin\", \"password\": \"1234\" }"));
-        for (var e: DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        long start = System.nanoTime();
+        HttpResponse<?> resp = client.send(Requests_Login.REQ_1, Requests_Login.BODY_1.bodyHandler());
+        long elapsedNanos = System.nanoTime() - start;
+        Requests_Login.LATENCY_1.record(elapsedNanos);
+        boolean[] found = Requests_Login.BODY_1.match(resp);
 
         assertEquals(200, resp.statusCode());
         assertTrue(resp.headers().firstValue("Content-Type").orElse("").contains("json"));
-        assertTrue(resp.body().contains("\"token\":"));
+        assertTrue(found[0], "expected body to contain \"\"token\":\"");
+    }
+
+    static final class Requests_GetUser {
+        static final HttpRequest REQ_1 = HttpRequest.newBuilder(URI.create(BASE + "/api/users/42"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .header("X-App", "TestLangDemo")
+                .GET()
+                .build();
+        static final LatencyHistogram LATENCY_1 = LatencyRecorder.histogram("GeneratedTests", "GetUser", "GET /api/users/42");
+        static final BodyMatcher BODY_1 = new BodyMatcher("\"id\":42");
     }
 
     @Test
     void test_GetUser() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/users/42"))
-            .timeout(Duration.ofSeconds(10))
-            .GET();
-        for (var e: DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        long start = System.nanoTime();
+        HttpResponse<?> resp = client.send(Requests_GetUser.REQ_1, Requests_GetUser.BODY_1.bodyHandler());
+        long elapsedNanos = System.nanoTime() - start;
+        Requests_GetUser.LATENCY_1.record(elapsedNanos);
+        boolean[] found = Requests_GetUser.BODY_1.match(resp);
 
         assertEquals(200, resp.statusCode());
-        assertTrue(resp.body().contains("\"id\":42"));
+        assertTrue(found[0], "expected body to contain \"\"id\":42\"");
+    }
+
+    static final class Requests_UpdateUser {
+        static final HttpRequest REQ_1 = HttpRequest.newBuilder(URI.create(BASE + "/api/users/42"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .header("X-App", "TestLangDemo")
+                .PUT(HttpRequest.BodyPublishers.ofString("{ \"role\": \"ADMIN\" }"))
+                .build();
+        static final LatencyHistogram LATENCY_1 = LatencyRecorder.histogram("GeneratedTests", "UpdateUser", "PUT /api/users/42");
+        static final BodyMatcher BODY_1 = new BodyMatcher("\"updated\":true", "\"role\":\"ADMIN\"");
     }
 
     @Test
     void test_UpdateUser() throws Exception {
-        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(BASE + "/api/users/42"))
-            .timeout(Duration.ofSeconds(10))
-            .PUT(HttpRequest.BodyPublishers.ofString("{ \"role\": \"ADMIN\" }"));
-        b.header("Content-Type", "application/json");
-        for (var e: DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());
-        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        long start = System.nanoTime();
+        HttpResponse<?> resp = client.send(Requests_UpdateUser.REQ_1, Requests_UpdateUser.BODY_1.bodyHandler());
+        long elapsedNanos = System.nanoTime() - start;
+        Requests_UpdateUser.LATENCY_1.record(elapsedNanos);
+        boolean[] found = Requests_UpdateUser.BODY_1.match(resp);
 
         assertEquals(200, resp.statusCode());
         assertEquals("TestLangDemo", resp.headers().firstValue("X-App").orElse(""));
         assertTrue(resp.headers().firstValue("Content-Type").orElse("").contains("json"));
-        assertTrue(resp.body().contains("\"updated\":true"));
-        assertTrue(resp.body().contains("\"role\":\"ADMIN\""));
+        assertTrue(found[0], "expected body to contain \"\"updated\":true\"");
+        assertTrue(found[1], "expected body to contain \"\"role\":\"ADMIN\"\"");
     }
 
 }
@@ -0,0 +1,74 @@
+package com.testlang.benchmarks;
+
+import com.testlang.ast.Program;
+import com.testlang.codegen.CodeGenerator;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Code generation from a parsed AST, as a String and as UTF-8 into a channel. The program
+ * is validated once in setup, so these measure emission only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodeGeneratorBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tests;
+
+    private Program program;
+    private final NullChannel channel = new NullChannel();
+
+    @Setup
+    public void setup() throws Exception {
+        String source = Corpus.generate(tests, Corpus.DEFAULT_SEED);
+        program = (Program) new parser(new Lexer(new StringReader(source))).parse().value;
+        new CodeGenerator(program).validate();
+    }
+
+    @Benchmark
+    public String generateString() throws Exception {
+        return new CodeGenerator(program).generate();
+    }
+
+    @Benchmark
+    public long generateChannel() throws Exception {
+        new CodeGenerator(program).generate(channel);
+        return channel.written;
+    }
+
+    /**
+     * Channel that discards its input, so only encoding is measured
+     */
+    private static class NullChannel implements WritableByteChannel {
+        long written;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int n = src.remaining();
+            src.position(src.limit());
+            written += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.testlang.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates synthetic .test programs that use every construct of the language. The same
+ * size and seed always give the same program, so benchmark runs are comparable.
+ */
+public class Corpus {
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String[] RESOURCES = {"users", "orders", "products", "sessions", "invoices", "carts"};
+
+    private Corpus() {
+    }
+
+    /**
+     * Returns a valid program with the given number of test blocks. Every variable is used,
+     * so validation prints no warnings.
+     */
+    public static String generate(int tests, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("// Synthetic corpus: ").append(tests).append(" tests, seed ").append(seed).append("\n\n");
+        sb.append("config {\n");
+        sb.append("    base_url = \"http://localhost:8080\";\n");
+        sb.append("    header \"Content-Type\" = \"application/json\";\n");
+        sb.append("    header \"X-App\" = \"TestLangBench\";\n");
+        sb.append("}\n\n");
+
+        int variables = Math.max(2, tests / 10);
+        for (int i = 0; i < variables; i++) {
+            if (i % 2 == 0) {
+                sb.append("let id").append(i).append(" = ").append(random.nextInt(10000)).append(";\n");
+            } else {
+                sb.append("let name").append(i).append(" = \"user").append(random.nextInt(10000)).append("\";\n");
+            }
+        }
+        sb.append('\n');
+
+        for (int t = 0; t < tests; t++) {
+            // The first tests reference every variable once
+            int var = t < variables ? t : random.nextInt(variables);
+            String ref = var % 2 == 0 ? "$id" + var : "$name" + var;
+            String resource = RESOURCES[random.nextInt(RESOURCES.length)];
+
+            sb.append("// Test ").append(t).append(" exercises /api/").append(resource).append('\n');
+            sb.append("test Case").append(t).append(" {\n");
+
+            int requests = 1 + random.nextInt(3);
+            for (int r = 0; r < requests; r++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        sb.append("    GET \"/api/").append(resource).append('/').append(ref).append("\";\n");
+                        break;
+                    case 1:
+                        sb.append("    DELETE \"/api/").append(resource).append('/').append(ref).append("\";\n");
+                        break;
+                    default:
+                        sb.append(random.nextBoolean() ? "    POST" : "    PUT")
+                            .append(" \"/api/").append(resource).append("\" {\n");
+                        if (random.nextBoolean()) {
+                            sb.append("        header \"X-Request\" = \"").append(t).append('-').append(r).append("\";\n");
+                        }
+                        sb.append("        body = \"{ \\\"owner\\\": \\\"").append(ref)
+                            .append("\\\", \\\"count\\\": ").append(random.nextInt(100)).append(" }\";\n");
+                        sb.append("    };\n");
+                        break;
+                }
+            }
+
+            int assertions = 2 + random.nextInt(4);
+            for (int a = 0; a < assertions; a++) {
+                switch (a == 0 ? 0 : random.nextInt(4)) {
+                    case 0:
+                        sb.append("    expect status = ").append(200 + random.nextInt(5)).append(";\n");
+                        break;
+                    case 1:
+                        sb.append("    expect header \"Content-Type\" contains \"json\";\n");
+                        break;
+                    case 2:
+                        sb.append("    expect header \"X-App\" = \"TestLangBench\";\n");
+                        break;
+                    default:
+                        sb.append("    expect body contains \"\\\"").append(resource).append("\\\":\";\n");
+                        break;
+                }
+            }
+            sb.append("}\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes a corpus file: Corpus &lt;tests&gt; &lt;output.test&gt; [seed]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java com.testlang.benchmarks.Corpus <tests> <output.test> [seed]");
+            System.exit(1);
+        }
+        int tests = Integer.parseInt(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        Path output = Paths.get(args[1]);
+        Files.write(output, generate(tests, seed).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote " + tests + " tests to " + output);
+    }
+}
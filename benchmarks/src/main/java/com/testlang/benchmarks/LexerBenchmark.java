@@ -0,0 +1,59 @@
+package com.testlang.benchmarks;
+
+import com.testlang.parser.Lexer;
+import com.testlang.parser.TokenStream;
+import com.testlang.parser.sym;
+import java_cup.runtime.Symbol;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexer throughput. The tokens counter is reported as a rate, i.e. tokens per second.
+ * tokenStream records into int arrays instead of building a Symbol and value per token.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tests;
+
+    private String source;
+    private char[] chars;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Tokens {
+        public long tokens;
+    }
+
+    @Setup
+    public void setup() {
+        source = Corpus.generate(tests, Corpus.DEFAULT_SEED);
+        chars = source.toCharArray();
+    }
+
+    @Benchmark
+    public void lex(Tokens counter, Blackhole bh) throws Exception {
+        Lexer lexer = new Lexer(new StringReader(source));
+        Symbol token;
+        while ((token = lexer.next_token()).sym != sym.EOF) {
+            bh.consume(token);
+            counter.tokens++;
+        }
+    }
+
+    @Benchmark
+    public TokenStream tokenStream(Tokens counter) throws Exception {
+        TokenStream tokens = TokenStream.tokenize(chars, chars.length);
+        counter.tokens += tokens.size();
+        return tokens;
+    }
+}
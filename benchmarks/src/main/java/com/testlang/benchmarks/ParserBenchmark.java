@@ -0,0 +1,54 @@
+package com.testlang.benchmarks;
+
+import com.testlang.ast.Program;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.ParallelParser;
+import com.testlang.parser.RecursiveDescentParser;
+import com.testlang.parser.parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing and parsing into an AST, in ASTs per second, with the generated CUP parser and the
+ * hand-written recursive descent one, and with one file split across the common pool. Run
+ * with -prof gc to see the bytes allocated per parse (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tests;
+
+    private String source;
+    private char[] chars;
+
+    @Setup
+    public void setup() {
+        source = Corpus.generate(tests, Corpus.DEFAULT_SEED);
+        chars = source.toCharArray();
+    }
+
+    @Benchmark
+    public Program parse() throws Exception {
+        parser parser = new parser(new Lexer(new StringReader(source)));
+        return (Program) parser.parse().value;
+    }
+
+    @Benchmark
+    public Program descent() throws Exception {
+        return new RecursiveDescentParser(new Lexer(new StringReader(source))).parse();
+    }
+
+    @Benchmark
+    public Program parallel() throws Exception {
+        // Sequential below ParallelParser's minimum chunk size, so only 1000 tests is split
+        return ParallelParser.parse(chars, chars.length);
+    }
+}
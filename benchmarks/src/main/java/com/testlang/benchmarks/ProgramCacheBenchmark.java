@@ -0,0 +1,65 @@
+package com.testlang.benchmarks;
+
+import com.testlang.ast.Program;
+import com.testlang.codegen.CodeGenerator;
+import com.testlang.parser.Lexer;
+import com.testlang.parser.ProgramCache;
+import com.testlang.parser.parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cold versus warm compile front end: parsing and validating the source, against hashing
+ * it and loading the cached AST.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProgramCacheBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tests;
+
+    private byte[] source;
+    private Path directory;
+    private ProgramCache cache;
+
+    @Setup
+    public void setup() throws Exception {
+        source = Corpus.generate(tests, Corpus.DEFAULT_SEED).getBytes(StandardCharsets.UTF_8);
+        directory = Files.createTempDirectory("testlang-cache-bench");
+        cache = new ProgramCache(directory);
+        cache.store(ProgramCache.key(source), cold());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Program cold() throws Exception {
+        InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8);
+        Program program = (Program) new parser(new Lexer(reader)).parse().value;
+        new CodeGenerator(program).validate();
+        return program;
+    }
+
+    @Benchmark
+    public Program warm() {
+        return cache.load(ProgramCache.key(source));
+    }
+}
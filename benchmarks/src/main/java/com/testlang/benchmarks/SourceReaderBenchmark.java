@@ -0,0 +1,66 @@
+package com.testlang.benchmarks;
+
+import com.testlang.parser.Lexer;
+import com.testlang.parser.MappedUtf8Reader;
+import com.testlang.parser.sym;
+import java_cup.runtime.Symbol;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.FileReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing a source file read through FileReader against reading it through a memory mapping.
+ * 10000 and 50000 tests are about 3 MB and 16 MB of source.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SourceReaderBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int tests;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws Exception {
+        file = Files.createTempFile("testlang-reader-bench", ".test");
+        Files.write(file, Corpus.generate(tests, Corpus.DEFAULT_SEED).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void fileReader(Blackhole bh) throws Exception {
+        try (Reader reader = new FileReader(file.toFile())) {
+            lex(reader, bh);
+        }
+    }
+
+    @Benchmark
+    public void mapped(Blackhole bh) throws Exception {
+        try (Reader reader = MappedUtf8Reader.open(file)) {
+            lex(reader, bh);
+        }
+    }
+
+    private static void lex(Reader reader, Blackhole bh) throws Exception {
+        Lexer lexer = new Lexer(reader);
+        Symbol token;
+        while ((token = lexer.next_token()).sym != sym.EOF) {
+            bh.consume(token);
+        }
+    }
+}
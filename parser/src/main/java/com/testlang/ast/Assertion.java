@@ -8,13 +8,18 @@ public class Assertion implements Statement {
         STATUS_EQUALS,        // expect status = 200
         HEADER_EQUALS,        // expect header "K" = "V"
         HEADER_CONTAINS,      // expect header "K" contains "V"
-        BODY_CONTAINS         // expect body contains "V"
+        BODY_CONTAINS,        // expect body contains "V"
+        RESPONSE_TIME_BELOW,  // expect time < 200ms
+        PERCENTILE_BELOW      // expect p99 < 50ms over 1000 runs
     }
 
     private Type type;
     private String key;       // For header assertions
     private String value;     // Expected value or substring
     private Integer statusCode; // For status assertions
+    private Long timeLimitMillis; // For response time and percentile assertions
+    private Double percentile;    // For percentile assertions, e.g. 99.9
+    private Integer runs;         // For percentile assertions
 
     public Assertion(Type type) {
         this.type = type;
@@ -47,4 +52,28 @@ public class Assertion implements Statement {
     public void setStatusCode(Integer statusCode) {
         this.statusCode = statusCode;
     }
+
+    public Long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public void setTimeLimitMillis(Long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    public Double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(Double percentile) {
+        this.percentile = percentile;
+    }
+
+    public Integer getRuns() {
+        return runs;
+    }
+
+    public void setRuns(Integer runs) {
+        this.runs = runs;
+    }
 }
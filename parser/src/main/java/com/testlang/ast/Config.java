@@ -9,6 +9,14 @@ import java.util.ArrayList;
 public class Config {
     private String baseUrl;
     private List<Header> headers;
+    private Long maxBodySize;  // Largest response body read, in bytes; null for no limit
+    private String httpVersion;          // HttpClient.Version name, e.g. HTTP_2
+    private Long connectTimeoutMillis;
+    private Long requestTimeoutMillis;
+    private Integer executorThreads;     // Fixed pool size
+    private boolean virtualThreads;      // Executor with a virtual thread per task
+    private String redirects;            // HttpClient.Redirect name, e.g. NORMAL
+    private Integer warmupRequests;      // HEAD requests sent to the base URL before the tests
 
     public Config() {
         this.headers = new ArrayList<>();
@@ -29,4 +37,68 @@ public class Config {
     public void addHeader(Header header) {
         this.headers.add(header);
     }
+
+    public Long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(Long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public String getHttpVersion() {
+        return httpVersion;
+    }
+
+    public void setHttpVersion(String httpVersion) {
+        this.httpVersion = httpVersion;
+    }
+
+    public Long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(Long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public Long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public void setRequestTimeoutMillis(Long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public Integer getExecutorThreads() {
+        return executorThreads;
+    }
+
+    public void setExecutorThreads(Integer executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public String getRedirects() {
+        return redirects;
+    }
+
+    public void setRedirects(String redirects) {
+        this.redirects = redirects;
+    }
+
+    public Integer getWarmupRequests() {
+        return warmupRequests;
+    }
+
+    public void setWarmupRequests(Integer warmupRequests) {
+        this.warmupRequests = warmupRequests;
+    }
 }
@@ -0,0 +1,35 @@
+package com.testlang.ast;
+
+/**
+ * Represents the optional load block. Either users (closed model: each user runs the tests
+ * back to back) or rate (open model: tests start on a fixed schedule) is set, plus a duration.
+ */
+public class LoadConfig {
+    private Integer users;
+    private Double ratePerSecond;
+    private Long durationMillis;
+
+    public Integer getUsers() {
+        return users;
+    }
+
+    public void setUsers(Integer users) {
+        this.users = users;
+    }
+
+    public Double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(Double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public Long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(Long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+}
@@ -8,8 +8,10 @@ import java.util.ArrayList;
  */
 public class Program {
     private Config config;
+    private LoadConfig loadConfig;
     private List<Variable> variables;
     private List<Test> tests;
+    private boolean validated; // Set once the program has passed validation
 
     public Program() {
         this.variables = new ArrayList<>();
@@ -24,6 +26,14 @@ public class Program {
         this.config = config;
     }
 
+    public LoadConfig getLoadConfig() {
+        return loadConfig;
+    }
+
+    public void setLoadConfig(LoadConfig loadConfig) {
+        this.loadConfig = loadConfig;
+    }
+
     public List<Variable> getVariables() {
         return variables;
     }
@@ -39,4 +49,12 @@ public class Program {
     public void addTest(Test test) {
         this.tests.add(test);
     }
+
+    public boolean isValidated() {
+        return validated;
+    }
+
+    public void markValidated() {
+        this.validated = true;
+    }
 }
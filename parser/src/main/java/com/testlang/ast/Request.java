@@ -11,10 +11,13 @@ public class Request implements Statement {
     private String url;
     private List<Header> headers;
     private String body;
+    private Template urlTemplate;  // Parsed once, when the request is built
+    private Template bodyTemplate;
 
     public Request(String method, String url) {
         this.method = method;
         this.url = url;
+        this.urlTemplate = Template.parse(url);
         this.headers = new ArrayList<>();
     }
 
@@ -26,6 +29,10 @@ public class Request implements Statement {
         return url;
     }
 
+    public Template getUrlTemplate() {
+        return urlTemplate;
+    }
+
     public List<Header> getHeaders() {
         return headers;
     }
@@ -34,11 +41,41 @@ public class Request implements Statement {
         this.headers.add(header);
     }
 
+    /**
+     * Returns the headers to send: this request's own headers, followed by
+     * the config defaults that it does not override (names are case-insensitive)
+     */
+    public List<Header> resolveHeaders(Config config) {
+        List<Header> resolved = new ArrayList<>(headers);
+        if (config != null) {
+            for (Header header : config.getHeaders()) {
+                if (!hasHeader(header.getKey())) {
+                    resolved.add(header);
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private boolean hasHeader(String key) {
+        for (Header header : headers) {
+            if (header.getKey().equalsIgnoreCase(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getBody() {
         return body;
     }
 
     public void setBody(String body) {
         this.body = body;
+        this.bodyTemplate = body != null ? Template.parse(body) : null;
+    }
+
+    public Template getBodyTemplate() {
+        return bodyTemplate;
     }
 }
@@ -0,0 +1,85 @@
+package com.testlang.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A string pre-split into literal text and $variable references.
+ * A reference is the longest identifier after '$', so $id and $idx are different variables.
+ */
+public class Template {
+    private final String text;
+    private final String[] literals;   // literals[i] precedes references[i]; the last one trails
+    private final String[] references;
+
+    private Template(String text, String[] literals, String[] references) {
+        this.text = text;
+        this.literals = literals;
+        this.references = references;
+    }
+
+    public static Template parse(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> references = new ArrayList<>();
+
+        int literalStart = 0;
+        int i = 0;
+        while ((i = text.indexOf('$', i)) != -1) {
+            int end = i + 1;
+            if (end < text.length() && isIdentifierStart(text.charAt(end))) {
+                end++;
+                while (end < text.length() && isIdentifierPart(text.charAt(end))) {
+                    end++;
+                }
+                literals.add(text.substring(literalStart, i));
+                references.add(text.substring(i + 1, end));
+                literalStart = end;
+            }
+            i = end;
+        }
+        literals.add(text.substring(literalStart));
+
+        return new Template(text, literals.toArray(new String[0]), references.toArray(new String[0]));
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<String> getReferences() {
+        return Collections.unmodifiableList(Arrays.asList(references));
+    }
+
+    /**
+     * Substitutes every reference in one pass; unknown variables are left as written
+     */
+    public String render(Map<String, String> values) {
+        if (references.length == 0) {
+            return text;
+        }
+
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < references.length; i++) {
+            sb.append(literals[i]);
+            String value = values.get(references[i]);
+            if (value != null) {
+                sb.append(value);
+            } else {
+                sb.append('$').append(references[i]);
+            }
+        }
+        sb.append(literals[references.length]);
+        return sb.toString();
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+}
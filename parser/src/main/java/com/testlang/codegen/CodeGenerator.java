@@ -2,54 +2,156 @@ package com.testlang.codegen;
 
 import com.testlang.ast.*;
 import com.testlang.parser.ValidationException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Generates JUnit 5 test code from the AST
  */
 public class CodeGenerator {
     private Program program;
-    private StringBuilder code;
+    private StringBuilder code;   // Holds the section being generated until it is flushed
+    private Appendable out;
+    private Utf8ChannelWriter channelWriter; // Set when generating into a channel
     private Map<String, String> variables;
+    private boolean validated;
+    private int testCount;
+    private Set<String> usedVars;
+    private PrintStream warnings = System.err;
+    private String className = "GeneratedTests";
 
     public CodeGenerator(Program program) {
         this.program = program;
         this.code = new StringBuilder();
         this.variables = new HashMap<>();
+        this.usedVars = new HashSet<>();
+
+        // Store variables
+        for (Variable var : program.getVariables()) {
+            variables.put(var.getName(), var.getValueAsString());
+        }
+    }
+
+    /**
+     * Sets where non-fatal validation warnings are printed (System.err by default)
+     */
+    public void setWarningStream(PrintStream warnings) {
+        this.warnings = warnings;
+    }
+
+    /**
+     * Sets the name of the generated class (GeneratedTests by default)
+     */
+    public void setClassName(String className) {
+        this.className = className;
     }
 
     public String generate() throws ValidationException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            generate(sb);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generates the class as UTF-8 straight into a channel, one test method at a time
+     */
+    public void generate(WritableByteChannel channel) throws ValidationException, IOException {
         // Validate the program before generating code
         validate();
 
-        // Store variables
-        for (Variable var : program.getVariables()) {
-            variables.put(var.getName(), var.getValueAsString());
+        begin(channel);
+        for (Test test : program.getTests()) {
+            generateTest(test);
+        }
+        end();
+    }
+
+    /**
+     * Generates the class into the given sink. Each test method is appended as soon as it
+     * is produced, so memory use does not grow with the number of tests.
+     */
+    public void generate(Appendable out) throws ValidationException, IOException {
+        // Validate the program before generating code
+        validate();
+
+        begin(out);
+        for (Test test : program.getTests()) {
+            generateTest(test);
         }
+        end();
+    }
+
+    /**
+     * Starts streaming generation by writing the class header for the program's config and
+     * variables. Tests are then passed to generateTest one at a time, and end closes the class.
+     */
+    public void begin(Appendable out) throws IOException {
+        this.out = out;
 
         // Generate class header
         generateImports();
         generateClassHeader();
         generateSetupMethod();
+        flush();
+    }
 
-        // Generate test methods
-        for (Test test : program.getTests()) {
-            generateTestMethod(test);
+    /**
+     * Starts streaming generation as UTF-8 into a channel; end finishes the encoding
+     */
+    public void begin(WritableByteChannel channel) throws IOException {
+        channelWriter = new Utf8ChannelWriter(channel);
+        begin(channelWriter);
+    }
+
+    public void generateTest(Test test) throws ValidationException, IOException {
+        if (!validated) {
+            validateTest(test);
+        }
+        generateTestMethod(test);
+        flush();
+    }
+
+    public void end() throws ValidationException, IOException {
+        if (!validated) {
+            finishValidation();
+        }
+
+        if (program.getLoadConfig() != null) {
+            generateLoadMain(program.getLoadConfig());
         }
 
         // Close class
         code.append("}\n");
+        flush();
 
-        return code.toString();
+        if (channelWriter != null) {
+            channelWriter.close();
+            channelWriter = null;
+        }
+    }
+
+    private void flush() throws IOException {
+        out.append(code);
+        code.setLength(0);
     }
 
     /**
-     * Validates the AST before code generation
+     * Validates the AST before code generation. Validation runs once per generator.
      */
-    private void validate() throws ValidationException {
-        // At least one test is required
-        if (program.getTests().isEmpty()) {
-            throw new ValidationException("Program must contain at least one test block");
+    public void validate() throws ValidationException {
+        // Programs loaded from the parse cache were validated before they were stored
+        if (validated || program.isValidated()) {
+            validated = true;
+            return;
         }
 
         // Validate each test
@@ -57,19 +159,40 @@ public class CodeGenerator {
             validateTest(test);
         }
 
-        // Warn about unused variables (non-fatal)
-        checkUnusedVariables();
+        finishValidation();
     }
 
-    private void validateTest(Test test) throws ValidationException {
+    /**
+     * Validates one test and records the variables it uses. Used directly when tests are
+     * streamed from the parser; finishValidation must be called after the last test.
+     */
+    public void validateTest(Test test) throws ValidationException {
         String testName = test.getName();
         int requestCount = 0;
         int assertionCount = 0;
 
         for (Statement stmt : test.getStatements()) {
             if (stmt instanceof Request) {
+                Request req = (Request) stmt;
+                usedVars.addAll(req.getUrlTemplate().getReferences());
+                if (req.getBodyTemplate() != null) {
+                    usedVars.addAll(req.getBodyTemplate().getReferences());
+                }
                 requestCount++;
             } else if (stmt instanceof Assertion) {
+                // Assertions check the most recent response, so one must exist
+                if (requestCount == 0) {
+                    throw new ValidationException(
+                        "Assertion must follow an HTTP request",
+                        testName
+                    );
+                }
+                Assertion assertion = (Assertion) stmt;
+                if (assertion.getType() == Assertion.Type.PERCENTILE_BELOW) {
+                    validatePercentile(assertion, testName);
+                }
+                checkVariableUsage(assertion.getKey(), usedVars);
+                checkVariableUsage(assertion.getValue(), usedVars);
                 assertionCount++;
             }
         }
@@ -89,37 +212,58 @@ public class CodeGenerator {
                 testName
             );
         }
+
+        testCount++;
     }
 
-    private void checkUnusedVariables() {
-        Set<String> usedVars = new HashSet<>();
+    private void validatePercentile(Assertion assertion, String testName) throws ValidationException {
+        if (assertion.getPercentile() <= 0 || assertion.getPercentile() > 100) {
+            throw new ValidationException(
+                "Percentile must be greater than 0 and at most 100 (found p" + percentileName(assertion) + ")",
+                testName
+            );
+        }
+        if (assertion.getRuns() < 1) {
+            throw new ValidationException("Percentile assertion must run at least once", testName);
+        }
+    }
 
-        // Check which variables are actually used
-        for (Test test : program.getTests()) {
-            for (Statement stmt : test.getStatements()) {
-                if (stmt instanceof Request) {
-                    Request req = (Request) stmt;
-                    checkVariableUsage(req.getUrl(), usedVars);
-                    if (req.getBody() != null) {
-                        checkVariableUsage(req.getBody(), usedVars);
-                    }
+    public void finishValidation() throws ValidationException {
+        // At least one test is required
+        if (testCount == 0) {
+            throw new ValidationException("Program must contain at least one test block");
+        }
+
+        LoadConfig load = program.getLoadConfig();
+        if (load != null) {
+            if (load.getUsers() != null && load.getRatePerSecond() != null) {
+                throw new ValidationException("Load block must set either users or rate, not both");
+            }
+            if (load.getRatePerSecond() != null) {
+                if (load.getRatePerSecond() <= 0) {
+                    throw new ValidationException("Load block must set a rate greater than 0");
                 }
+            } else if (load.getUsers() == null || load.getUsers() < 1) {
+                throw new ValidationException("Load block must set users to at least 1");
+            }
+            if (load.getDurationMillis() == null || load.getDurationMillis() < 1) {
+                throw new ValidationException("Load block must set a duration greater than 0");
             }
         }
 
-        // Warn about unused variables
+        // Warn about unused variables (non-fatal)
         for (Variable var : program.getVariables()) {
             if (!usedVars.contains(var.getName())) {
-                System.err.println("Warning: Variable '" + var.getName() + "' is declared but never used");
+                warnings.println("Warning: Variable '" + var.getName() + "' is declared but never used");
             }
         }
+        validated = true;
+        program.markValidated();
     }
 
     private void checkVariableUsage(String text, Set<String> usedVars) {
-        for (String varName : variables.keySet()) {
-            if (text.contains("$" + varName)) {
-                usedVars.add(varName);
-            }
+        if (text != null && text.indexOf('$') != -1) {
+            usedVars.addAll(Template.parse(text).getReferences());
         }
     }
 
@@ -130,119 +274,303 @@ public class CodeGenerator {
         code.append("import java.net.*;\n");
         code.append("import java.time.Duration;\n");
         code.append("import java.nio.charset.StandardCharsets;\n");
-        code.append("import java.util.*;\n\n");
+        code.append("import java.util.*;\n");
+        code.append("import com.testlang.runtime.BodyLimit;\n");
+        code.append("import com.testlang.runtime.BodyMatcher;\n");
+        code.append("import com.testlang.runtime.ClientExecutors;\n");
+        code.append("import com.testlang.runtime.ClientWarmup;\n");
+        code.append("import com.testlang.runtime.LatencyHistogram;\n");
+        code.append("import com.testlang.runtime.LatencyRecorder;\n\n");
     }
 
     private void generateClassHeader() {
-        code.append("public class GeneratedTests {\n\n");
+        code.append("public class ").append(className).append(" {\n\n");
 
         // Static fields
         String baseUrl = "http://localhost:8080";
         if (program.getConfig() != null && program.getConfig().getBaseUrl() != null) {
             baseUrl = program.getConfig().getBaseUrl();
         }
-        code.append("    static String BASE = \"").append(baseUrl).append("\";\n");
-        code.append("    static Map<String,String> DEFAULT_HEADERS = new HashMap<>();\n");
+        code.append("    static final String BASE = \"").append(escapeJava(baseUrl)).append("\";\n");
+        if (maxBodySize() != null) {
+            code.append("    static final long MAX_BODY_SIZE = ").append(maxBodySize()).append("L;\n");
+        }
         code.append("    static HttpClient client;\n\n");
     }
 
     private void generateSetupMethod() {
         code.append("    @BeforeAll\n");
         code.append("    static void setup() {\n");
-        code.append("        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();\n");
-
-        // Add default headers from config
-        if (program.getConfig() != null) {
-            for (Header header : program.getConfig().getHeaders()) {
-                code.append("        DEFAULT_HEADERS.put(\"")
-                    .append(escapeJava(header.getKey()))
-                    .append("\",\"")
-                    .append(escapeJava(header.getValue()))
-                    .append("\");\n");
-            }
+        code.append("        client = HttpClient.newBuilder()");
+        generateClientOptions(program.getConfig());
+        code.append(".build();\n");
+        Config config = program.getConfig();
+        if (config != null && config.getWarmupRequests() != null) {
+            // Connect and load the client's classes before the first test is timed
+            code.append("        ClientWarmup.warmUp(client, BASE, ").append(config.getWarmupRequests())
+                .append(", ").append(requestTimeout()).append(");\n");
         }
+        code.append("    }\n\n");
 
+        code.append("    @AfterAll\n");
+        code.append("    static void teardown() throws Exception {\n");
+        code.append("        LatencyRecorder.writeReport();\n");
+        code.append("    }\n\n");
+    }
+
+    /**
+     * Appends the builder calls for the transport options of the config block. Without any,
+     * the builder stays on one line as before.
+     */
+    private void generateClientOptions(Config config) {
+        if (config == null || (config.getConnectTimeoutMillis() == null && config.getHttpVersion() == null
+                && config.getRedirects() == null && config.getExecutorThreads() == null
+                && !config.isVirtualThreads())) {
+            code.append(".connectTimeout(Duration.ofSeconds(5))");
+            return;
+        }
+
+        String indent = "\n            ";
+        if (config.getConnectTimeoutMillis() != null) {
+            code.append(indent).append(".connectTimeout(Duration.ofMillis(")
+                .append(config.getConnectTimeoutMillis()).append("))");
+        } else {
+            code.append(indent).append(".connectTimeout(Duration.ofSeconds(5))");
+        }
+        if (config.getHttpVersion() != null) {
+            code.append(indent).append(".version(HttpClient.Version.").append(config.getHttpVersion()).append(")");
+        }
+        if (config.getRedirects() != null) {
+            code.append(indent).append(".followRedirects(HttpClient.Redirect.").append(config.getRedirects()).append(")");
+        }
+        if (config.getExecutorThreads() != null) {
+            code.append(indent).append(".executor(ClientExecutors.fixed(").append(config.getExecutorThreads()).append("))");
+        } else if (config.isVirtualThreads()) {
+            code.append(indent).append(".executor(ClientExecutors.virtual())");
+        }
+        code.append(indent);
+    }
+
+    private String requestTimeout() {
+        Long timeout = program.getConfig() != null ? program.getConfig().getRequestTimeoutMillis() : null;
+        return timeout != null ? "Duration.ofMillis(" + timeout + ")" : "Duration.ofSeconds(10)";
+    }
+
+    private void generateLoadMain(LoadConfig load) {
+        // Running the class directly drives the tests as a load test
+        code.append("    public static void main(String[] args) throws Throwable {\n");
+        code.append("        com.testlang.runtime.LoadReport report = new com.testlang.runtime.LoadRunner(")
+            .append(className)
+            .append(".class)\n");
+        if (load.getRatePerSecond() != null) {
+            code.append("            .runAtRate(").append(load.getRatePerSecond());
+        } else {
+            code.append("            .run(").append(load.getUsers());
+        }
+        code.append(", Duration.ofMillis(")
+            .append(load.getDurationMillis())
+            .append("), System.out);\n");
+        code.append("        System.exit(report.getFailures() > 0 ? 1 : 0);\n");
         code.append("    }\n\n");
     }
 
     private void generateTestMethod(Test test) {
+        List<List<String>> needles = bodyNeedles(test);
+
+        // Requests are immutable, so each one is built once as a constant, along with the
+        // histogram its latencies are recorded into and the matcher for its body. They live in
+        // a holder class per test so each test's constants are initialized on its first run,
+        // by their own small static initializer instead of one for the whole suite.
+        code.append("    static final class ").append(holderClass(test)).append(" {\n");
+        int index = 0;
+        for (Statement stmt : test.getStatements()) {
+            if (stmt instanceof Request) {
+                index++;
+                code.append(index == 1 ? "" : "\n");
+                generateRequestConstant((Request) stmt, "REQ_" + index);
+                generateHistogramConstant(test, (Request) stmt, "LATENCY_" + index);
+                if (!needles.get(index - 1).isEmpty()) {
+                    generateMatcherConstant(needles.get(index - 1), "BODY_" + index);
+                }
+            }
+        }
+        code.append("    }\n\n");
+
         code.append("    @Test\n");
         code.append("    void test_").append(test.getName()).append("() throws Exception {\n");
 
+        index = 0;
+        int needle = 0;
+        boolean matched = false;
         for (Statement stmt : test.getStatements()) {
             if (stmt instanceof Request) {
-                generateRequest((Request) stmt);
+                index++;
+                needle = 0;
+                boolean readsBody = !needles.get(index - 1).isEmpty();
+                generateRequest(requestField(test, index), histogramField(test, index), index == 1,
+                    bodyHandler(test, index, readsBody));
+                if (readsBody) {
+                    // One pass over the body answers every body assertion up to the next request
+                    code.append(matched ? "        found = " : "        boolean[] found = ")
+                        .append(matcherField(test, index))
+                        .append(".match(resp);\n");
+                    matched = true;
+                }
+                code.append("\n");
             } else if (stmt instanceof Assertion) {
-                generateAssertion((Assertion) stmt);
+                Assertion assertion = (Assertion) stmt;
+                generateAssertion(assertion, requestField(test, index), histogramField(test, index),
+                    bodyHandler(test, index, !needles.get(index - 1).isEmpty()), needle);
+                if (assertion.getType() == Assertion.Type.BODY_CONTAINS) {
+                    needle++;
+                }
             }
         }
 
         code.append("    }\n\n");
     }
 
-    private void generateRequest(Request request) {
-        String url = substituteVariables(request.getUrl());
+    private String holderClass(Test test) {
+        return "Requests_" + test.getName();
+    }
+
+    private String requestField(Test test, int index) {
+        return holderClass(test) + ".REQ_" + index;
+    }
+
+    private String histogramField(Test test, int index) {
+        return holderClass(test) + ".LATENCY_" + index;
+    }
+
+    private String matcherField(Test test, int index) {
+        return holderClass(test) + ".BODY_" + index;
+    }
+
+    /**
+     * Returns, for each request of the test, the substrings its body is expected to contain
+     */
+    private List<List<String>> bodyNeedles(Test test) {
+        List<List<String>> needles = new ArrayList<>();
+        for (Statement stmt : test.getStatements()) {
+            if (stmt instanceof Request) {
+                needles.add(new ArrayList<>());
+            } else if (stmt instanceof Assertion && ((Assertion) stmt).getType() == Assertion.Type.BODY_CONTAINS) {
+                needles.get(needles.size() - 1).add(substituteVariables(((Assertion) stmt).getValue()));
+            }
+        }
+        return needles;
+    }
+
+    private void generateMatcherConstant(List<String> needles, String field) {
+        code.append("        static final BodyMatcher ").append(field).append(" = new BodyMatcher(");
+        for (int i = 0; i < needles.size(); i++) {
+            code.append(i == 0 ? "\"" : ", \"").append(escapeJava(needles.get(i))).append('"');
+        }
+        code.append(");\n");
+    }
+
+    /**
+     * Bodies that are searched are streamed through their matcher, which stops reading once
+     * every needle is found and never decodes or keeps the body. Other bodies are discarded.
+     */
+    private String bodyHandler(Test test, int index, boolean readsBody) {
+        if (!readsBody) {
+            return "HttpResponse.BodyHandlers.discarding()";
+        }
+        String handler = matcherField(test, index) + ".bodyHandler()";
+        return maxBodySize() != null ? "BodyLimit.limit(" + handler + ", MAX_BODY_SIZE)" : handler;
+    }
+
+    private Long maxBodySize() {
+        return program.getConfig() != null ? program.getConfig().getMaxBodySize() : null;
+    }
+
+    private void generateHistogramConstant(Test test, Request request, String field) {
+        String requestLine = request.getMethod() + " " + request.getUrlTemplate().render(variables);
+        code.append("        static final LatencyHistogram ").append(field)
+            .append(" = LatencyRecorder.histogram(\"")
+            .append(escapeJava(className))
+            .append("\", \"")
+            .append(escapeJava(test.getName()))
+            .append("\", \"")
+            .append(escapeJava(requestLine))
+            .append("\");\n");
+    }
+
+    private void generateRequestConstant(Request request, String field) {
+        String url = request.getUrlTemplate().render(variables);
 
         // Build full URL
         String fullUrl;
         if (url.startsWith("/")) {
-            fullUrl = "BASE + \"" + url + "\"";
+            fullUrl = "BASE + \"" + escapeJava(url) + "\"";
         } else {
-            fullUrl = "\"" + url + "\"";
+            fullUrl = "\"" + escapeJava(url) + "\"";
         }
 
-        code.append("        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(")
+        code.append("        static final HttpRequest ").append(field)
+            .append(" = HttpRequest.newBuilder(URI.create(")
             .append(fullUrl)
             .append("))\n");
-        code.append("            .timeout(Duration.ofSeconds(10))\n");
+        code.append("                .timeout(").append(requestTimeout()).append(")\n");
+
+        // Default headers are merged in here rather than on every call
+        for (Header header : request.resolveHeaders(program.getConfig())) {
+            code.append("                .header(\"")
+                .append(escapeJava(header.getKey()))
+                .append("\", \"")
+                .append(escapeJava(header.getValue()))
+                .append("\")\n");
+        }
 
         // Add HTTP method
         switch (request.getMethod()) {
             case "GET":
-                code.append("            .GET();\n");
+                code.append("                .GET()\n");
                 break;
             case "DELETE":
-                code.append("            .DELETE();\n");
+                code.append("                .DELETE()\n");
                 break;
             case "POST":
-                if (request.getBody() != null) {
-                    String body = substituteVariables(request.getBody());
-                    code.append("            .POST(HttpRequest.BodyPublishers.ofString(\"")
-                        .append(escapeJava(body))
-                        .append("\"));\n");
-                } else {
-                    code.append("            .POST(HttpRequest.BodyPublishers.noBody());\n");
-                }
-                break;
             case "PUT":
+                code.append("                .").append(request.getMethod()).append("(");
                 if (request.getBody() != null) {
-                    String body = substituteVariables(request.getBody());
-                    code.append("            .PUT(HttpRequest.BodyPublishers.ofString(\"")
+                    String body = request.getBodyTemplate().render(variables);
+                    code.append("HttpRequest.BodyPublishers.ofString(\"")
                         .append(escapeJava(body))
-                        .append("\"));\n");
+                        .append("\"))\n");
                 } else {
-                    code.append("            .PUT(HttpRequest.BodyPublishers.noBody());\n");
+                    code.append("HttpRequest.BodyPublishers.noBody())\n");
                 }
                 break;
         }
 
-        // Add request-specific headers
-        for (Header header : request.getHeaders()) {
-            code.append("        b.header(\"")
-                .append(escapeJava(header.getKey()))
-                .append("\", \"")
-                .append(escapeJava(header.getValue()))
-                .append("\");\n");
-        }
+        code.append("                .build();\n");
+    }
+
+    private void generateRequest(String field, String histogram, boolean first, String bodyHandler) {
+        code.append(first ? "        long start = " : "        start = ").append("System.nanoTime();\n");
 
-        // Add default headers
-        code.append("        for (var e: DEFAULT_HEADERS.entrySet()) b.header(e.getKey(), e.getValue());\n");
+        // Later requests in the same test replace the response the assertions look at
+        code.append(first ? "        HttpResponse<?> resp = " : "        resp = ")
+            .append("client.send(")
+            .append(field)
+            .append(", ")
+            .append(bodyHandler)
+            .append(");\n");
 
-        // Send request
-        code.append("        HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));\n\n");
+        code.append(first ? "        long elapsedNanos = " : "        elapsedNanos = ")
+            .append("System.nanoTime() - start;\n");
+        code.append("        ").append(histogram).append(".record(elapsedNanos);\n");
     }
 
-    private void generateAssertion(Assertion assertion) {
+    /**
+     * Generates one assertion on the response of the most recent request, which is also the
+     * request a percentile assertion sends again. Body assertions check their needle's entry in
+     * the request's match results.
+     */
+    private void generateAssertion(Assertion assertion, String field, String histogram, String bodyHandler,
+                                   int needle) {
         String key = assertion.getKey() != null ? substituteVariables(assertion.getKey()) : null;
         String value = assertion.getValue() != null ? substituteVariables(assertion.getValue()) : null;
 
@@ -270,20 +598,67 @@ public class CodeGenerator {
                 break;
 
             case BODY_CONTAINS:
-                code.append("        assertTrue(resp.body().contains(\"")
+                code.append("        assertTrue(found[")
+                        .append(needle)
+                        .append("], \"expected body to contain \\\"")
                         .append(escapeJava(value))
-                        .append("\"));\n");
+                        .append("\\\"\");\n");
+                break;
+
+            case RESPONSE_TIME_BELOW:
+                long limit = assertion.getTimeLimitMillis();
+                code.append("        assertTrue(elapsedNanos < ")
+                        .append(TimeUnit.MILLISECONDS.toNanos(limit))
+                        .append("L, \"expected response time below ")
+                        .append(limit)
+                        .append(" ms but was \" + elapsedNanos / 1_000_000 + \" ms\");\n");
+                break;
+
+            case PERCENTILE_BELOW:
+                generatePercentileAssertion(assertion, field, histogram, bodyHandler);
                 break;
         }
     }
 
+    private void generatePercentileAssertion(Assertion assertion, String field, String histogram,
+                                             String bodyHandler) {
+        String name = "p" + percentileName(assertion);
+        long limit = assertion.getTimeLimitMillis();
+        int runs = assertion.getRuns();
+        int warmup = runs / 10;
+
+        // Warmup runs let connections and the server's JIT settle before measuring
+        code.append("        {\n");
+        code.append("            LatencyHistogram runs = new LatencyHistogram();\n");
+        code.append("            for (int run = -").append(warmup).append("; run < ").append(runs).append("; run++) {\n");
+        // Block locals, so a later time assertion still checks the test's own response
+        code.append("                long runStart = System.nanoTime();\n");
+        code.append("                client.send(").append(field).append(", ").append(bodyHandler).append(");\n");
+        code.append("                long runNanos = System.nanoTime() - runStart;\n");
+        code.append("                if (run >= 0) {\n");
+        code.append("                    runs.record(runNanos);\n");
+        code.append("                    ").append(histogram).append(".record(runNanos);\n");
+        code.append("                }\n");
+        code.append("            }\n");
+        code.append("            long percentile = runs.getValueAtPercentile(")
+            .append(assertion.getPercentile()).append(");\n");
+        code.append("            assertTrue(percentile < ")
+            .append(TimeUnit.MILLISECONDS.toNanos(limit))
+            .append("L, \"expected ").append(name).append(" below ").append(limit)
+            .append(" ms over ").append(runs).append(" runs but was \" + percentile / 1_000_000 + \" ms\");\n");
+        code.append("        }\n");
+    }
+
+    /**
+     * Returns the percentile as written, e.g. 99 or 99.9
+     */
+    private static String percentileName(Assertion assertion) {
+        double percentile = assertion.getPercentile();
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
 
     private String substituteVariables(String text) {
-        String result = text;
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            result = result.replace("$" + entry.getKey(), entry.getValue());
-        }
-        return result;
+        return Template.parse(text).render(variables);
     }
 
     private String escapeJava(String str) {
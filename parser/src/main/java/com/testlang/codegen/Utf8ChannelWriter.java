@@ -0,0 +1,99 @@
+package com.testlang.codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writer that encodes characters as UTF-8 into one reused buffer and drains it to a channel.
+ * Closing the writer finishes the encoding but leaves the channel open for its owner.
+ */
+class Utf8ChannelWriter extends Writer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer;
+    private char carry; // High surrogate whose low half has not been written yet
+
+    Utf8ChannelWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(cbuf, off, len));
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(str, off, off + len));
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        // Writer.append would copy the sequence into a String first
+        encode(CharBuffer.wrap(csq != null ? csq : "null"));
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        CharBuffer rest = carry != 0 ? CharBuffer.wrap(new char[] {carry}) : CharBuffer.allocate(0);
+        carry = 0;
+        while (encoder.encode(rest, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        drain();
+    }
+
+    private void encode(CharBuffer in) throws IOException {
+        if (carry != 0 && in.hasRemaining()) {
+            char high = carry;
+            carry = 0;
+            encodeChunk(CharBuffer.wrap(new char[] {high, in.get()}));
+        }
+        encodeChunk(in);
+    }
+
+    private void encodeChunk(CharBuffer in) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, false);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                // Underflow: anything left is half of a surrogate pair
+                if (in.hasRemaining()) {
+                    carry = in.get();
+                }
+                return;
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,201 @@
+package com.testlang.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many .test files in one JVM. Files are parsed and generated in parallel, each
+ * with its own lexer, parser and generator, and errors are collected per file instead of
+ * stopping at the first one.
+ */
+public class BatchCompiler {
+    private final Path outputDir;
+    private final ProgramCache programCache;
+    private final int parallelism;
+
+    /**
+     * Result of compiling one input file
+     */
+    public static class FileResult {
+        private final Path input;
+        private final Path output;
+        private final String error;
+        private final String warnings;
+
+        FileResult(Path input, Path output, String error, String warnings) {
+            this.input = input;
+            this.output = output;
+            this.error = error;
+            this.warnings = warnings;
+        }
+
+        public Path getInput() {
+            return input;
+        }
+
+        public Path getOutput() {
+            return output;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /** Error message, or null when the file compiled */
+        public String getError() {
+            return error;
+        }
+
+        /** Non-fatal warnings printed while compiling, possibly empty */
+        public String getWarnings() {
+            return warnings;
+        }
+    }
+
+    /**
+     * @param programCache parse cache, or null
+     * @param parallelism number of files compiled at once; 0 or less uses every core
+     */
+    public BatchCompiler(Path outputDir, ProgramCache programCache, int parallelism) {
+        this.outputDir = outputDir;
+        this.programCache = programCache;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Compiles every input into outputDir and returns one result per input, in input order.
+     * Each file becomes its own class, named after the file (see className).
+     */
+    public List<FileResult> compile(List<Path> inputs) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+
+        // Output names come from file names, so two inputs may claim the same class
+        Map<String, Path> claimed = new HashMap<>();
+        List<Callable<FileResult>> tasks = new ArrayList<>();
+        for (Path input : inputs) {
+            String name = className(input);
+            Path output = outputDir.resolve(name + ".java");
+            Path first = claimed.putIfAbsent(name, input);
+            if (first != null) {
+                tasks.add(() -> new FileResult(input, output,
+                    "Output " + output.getFileName() + " is already generated from " + first, ""));
+            } else {
+                tasks.add(() -> compileFile(input, output, name));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<FileResult> results = new ArrayList<>();
+            for (Future<FileResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            // compileFile reports every exception in its result
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private FileResult compileFile(Path input, Path output, String name) {
+        ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+        PrintStream err = new PrintStream(warnings, true, StandardCharsets.UTF_8);
+        String error = null;
+        try {
+            TestLangParser.generateFile(input.toString(), output, name, programCache, err);
+        } catch (LexerException | ParserException | ValidationException e) {
+            error = e.getMessage();
+        } catch (FileNotFoundException e) {
+            error = "Input file not found: " + input;
+        } catch (IOException e) {
+            error = "Error reading/writing files: " + e.getMessage();
+        } catch (Exception e) {
+            error = "Unexpected error: " + e;
+        }
+        return new FileResult(input, output, error, warnings.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Turns a file name such as user-api.test into a class name such as UserApiTests
+     */
+    public static String className(Path input) {
+        String base = input.getFileName().toString();
+        if (base.endsWith(".test")) {
+            base = base.substring(0, base.length() - ".test".length());
+        }
+
+        StringBuilder name = new StringBuilder();
+        for (String part : base.split("[^A-Za-z0-9]+")) {
+            if (!part.isEmpty()) {
+                name.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+            }
+        }
+        if (name.length() == 0 || Character.isDigit(name.charAt(0))) {
+            name.insert(0, 'T');
+        }
+        return name.append("Tests").toString();
+    }
+
+    /**
+     * Expands files, directories (searched recursively for .test files) and glob patterns
+     * such as tests/**.test into a list of input files, relative to workingDir.
+     */
+    public static List<Path> expand(List<String> patterns, Path workingDir) throws IOException {
+        Set<Path> inputs = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            if (isGlob(pattern)) {
+                StringBuilder prefix = new StringBuilder();
+                for (String segment : pattern.split("/")) {
+                    if (isGlob(segment)) {
+                        break;
+                    }
+                    prefix.append(segment).append('/');
+                }
+                Path base = workingDir.resolve(prefix.toString()).normalize();
+
+                String absolute = workingDir.resolve(pattern).normalize().toString();
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + absolute);
+                if (Files.isDirectory(base)) {
+                    inputs.addAll(walk(base, matcher::matches));
+                }
+            } else {
+                Path path = workingDir.resolve(pattern).normalize();
+                if (Files.isDirectory(path)) {
+                    inputs.addAll(walk(path, p -> p.getFileName().toString().endsWith(".test")));
+                } else {
+                    // Missing files are reported as errors for that file
+                    inputs.add(path);
+                }
+            }
+        }
+        return new ArrayList<>(inputs);
+    }
+
+    private static List<Path> walk(Path dir, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isGlob(String pattern) {
+        return pattern.indexOf('*') != -1 || pattern.indexOf('?') != -1
+            || pattern.indexOf('[') != -1 || pattern.indexOf('{') != -1;
+    }
+}
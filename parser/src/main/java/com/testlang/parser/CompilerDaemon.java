@@ -0,0 +1,202 @@
+package com.testlang.parser;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves TestLangParser commands over a Unix domain socket, so repeated compiles reuse one
+ * warm JVM instead of paying startup and class loading every time.
+ *
+ * A client sends its working directory and arguments. The daemon answers with frames of
+ * stdout and stderr output, then the exit status.
+ */
+public class CompilerDaemon {
+    private static final byte EXIT = 0;
+    private static final byte OUT = 1;
+    private static final byte ERR = 2;
+
+    private final Path socket;
+    private final ExecutorService workers;
+    private ServerSocketChannel server;
+
+    public CompilerDaemon(Path socket) {
+        this.socket = socket;
+        this.workers = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "testlang-daemon-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the per-user socket in the temp directory
+     */
+    public static Path defaultSocket() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "testlang-" + System.getProperty("user.name") + ".sock");
+    }
+
+    /**
+     * Binds the socket. A socket file left by a daemon that did not shut down cleanly is
+     * replaced, but a live daemon on the same path is an error.
+     */
+    public void start() throws IOException {
+        if (Files.exists(socket)) {
+            SocketChannel existing = connect(socket);
+            if (existing != null) {
+                existing.close();
+                throw new IOException("A daemon is already listening on " + socket);
+            }
+            Files.delete(socket);
+        }
+
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        try {
+            // Anyone who can connect can write files as this user
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system
+        }
+    }
+
+    /**
+     * Accepts clients until the daemon is closed. Each client is served on its own thread.
+     */
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            workers.execute(() -> handle(client));
+        }
+    }
+
+    public void close() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        workers.shutdown();
+        Files.deleteIfExists(socket);
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            Path workingDir = Paths.get(in.readUTF());
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+
+            DataOutputStream frames = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FrameOutputStream(frames, OUT)),
+                true, StandardCharsets.UTF_8);
+            PrintStream err = new PrintStream(new BufferedOutputStream(new FrameOutputStream(frames, ERR)),
+                true, StandardCharsets.UTF_8);
+
+            int status = TestLangParser.run(args, workingDir, out, err);
+            out.flush();
+            err.flush();
+            synchronized (frames) {
+                frames.writeByte(EXIT);
+                frames.writeInt(status);
+                frames.flush();
+            }
+        } catch (EOFException e) {
+            // Connected without sending a command, e.g. start() checking for a live daemon
+        } catch (IOException e) {
+            System.err.println("Warning: Daemon request failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Connects to a daemon, or returns null when none is listening on the socket
+     */
+    public static SocketChannel connect(Path socket) {
+        try {
+            return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sends a command to the daemon, copies its output to out and err, and returns its exit status
+     */
+    public static int forward(SocketChannel channel, Path workingDir, String[] args, PrintStream out,
+                              PrintStream err) throws IOException {
+        DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        request.writeUTF(workingDir.toAbsolutePath().toString());
+        request.writeInt(args.length);
+        for (String arg : args) {
+            request.writeUTF(arg);
+        }
+        request.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        while (true) {
+            byte kind = in.readByte();
+            if (kind == EXIT) {
+                return in.readInt();
+            }
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            PrintStream target = kind == OUT ? out : err;
+            target.write(bytes, 0, bytes.length);
+            target.flush();
+        }
+    }
+
+    /**
+     * Writes each chunk as a frame tagged with its stream. Frames from stdout and stderr
+     * share one connection, so writes are serialized on it.
+     */
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream frames;
+        private final byte kind;
+
+        FrameOutputStream(DataOutputStream frames, byte kind) {
+            this.frames = frames;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (frames) {
+                frames.writeByte(kind);
+                frames.writeInt(len);
+                frames.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (frames) {
+                frames.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.testlang.parser;
+
+import com.testlang.ast.Config;
+import com.testlang.ast.LoadConfig;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Checks the named options of the config and load blocks, for both parsers
+ */
+final class ConfigOptions {
+
+    private ConfigOptions() {
+    }
+
+    /**
+     * Checks a load option and sets it
+     */
+    static void setLoadOption(LoadConfig load, String name, Object value, int line) throws ParserException {
+        switch (name) {
+            case "users":
+                if (!(value instanceof Integer)) {
+                    throw new ParserException("Load option 'users' must be a number", line);
+                }
+                load.setUsers((Integer) value);
+                break;
+            case "rate":
+                if (!(value instanceof Double)) {
+                    throw new ParserException("Load option 'rate' must be a rate such as 500/s", line);
+                }
+                load.setRatePerSecond((Double) value);
+                break;
+            case "duration":
+                if (!(value instanceof Long)) {
+                    throw new ParserException("Load option 'duration' must be a duration such as 60s", line);
+                }
+                load.setDurationMillis((Long) value);
+                break;
+            default:
+                throw new ParserException("Unknown load option '" + name + "'", line);
+        }
+    }
+
+    /**
+     * Checks a config option and returns the change it makes to the Config. The change is
+     * applied once the whole config block has been read.
+     */
+    static Consumer<Config> configOption(String name, Object value, int line) throws ParserException {
+        switch (name) {
+            case "max_body_size":
+                if (!(value instanceof Integer) || (Integer) value < 1) {
+                    throw new ParserException("Config option 'max_body_size' must be a number of bytes greater than 0", line);
+                }
+                long bytes = (Integer) value;
+                return c -> c.setMaxBodySize(bytes);
+            case "http_version":
+                if ("HTTP/1.1".equals(value)) {
+                    return c -> c.setHttpVersion("HTTP_1_1");
+                } else if ("HTTP/2".equals(value)) {
+                    return c -> c.setHttpVersion("HTTP_2");
+                }
+                throw new ParserException("Config option 'http_version' must be \"HTTP/1.1\" or \"HTTP/2\"", line);
+            case "connect_timeout":
+            case "request_timeout":
+                if (!(value instanceof Long) || (Long) value < 1) {
+                    throw new ParserException("Config option '" + name + "' must be a duration such as 5s", line);
+                }
+                long millis = (Long) value;
+                return name.equals("connect_timeout")
+                    ? c -> c.setConnectTimeoutMillis(millis)
+                    : c -> c.setRequestTimeoutMillis(millis);
+            case "executor":
+                if ("virtual".equals(value)) {
+                    return c -> c.setVirtualThreads(true);
+                } else if (value instanceof Integer && (Integer) value > 0) {
+                    int threads = (Integer) value;
+                    return c -> c.setExecutorThreads(threads);
+                }
+                throw new ParserException("Config option 'executor' must be a number of threads or \"virtual\"", line);
+            case "redirects":
+                if ("never".equals(value) || "normal".equals(value) || "always".equals(value)) {
+                    String policy = ((String) value).toUpperCase(Locale.ROOT);
+                    return c -> c.setRedirects(policy);
+                }
+                throw new ParserException("Config option 'redirects' must be \"never\", \"normal\" or \"always\"", line);
+            case "warmup":
+                if (!(value instanceof Integer) || (Integer) value < 1) {
+                    throw new ParserException("Config option 'warmup' must be a number of requests greater than 0", line);
+                }
+                int requests = (Integer) value;
+                return c -> c.setWarmupRequests(requests);
+            default:
+                throw new ParserException("Unknown config option '" + name + "'", line);
+        }
+    }
+}
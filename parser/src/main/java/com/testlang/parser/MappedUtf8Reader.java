@@ -0,0 +1,124 @@
+package com.testlang.parser;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a source file as UTF-8 whatever the platform charset, from a memory mapping of the
+ * file rather than through read calls. Bytes are copied from the mapping in blocks into a
+ * small heap window and decoded from there straight into the caller's buffer, which for
+ * the lexer is its own char buffer. Decoding from the mapping itself would avoid that copy,
+ * but the JDK's UTF-8 decoder only has its fast ASCII path for heap buffers.
+ *
+ * Malformed bytes become U+FFFD, as with FileReader, and a leading byte order mark is
+ * skipped.
+ */
+public class MappedUtf8Reader extends Reader {
+    private static final int WINDOW_SIZE = 8192;
+
+    private final ByteBuffer bytes;
+    private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE).flip();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private int pending = -1;  // Low surrogate left over when only one char was asked for
+
+    /**
+     * Reads the bytes between the position and limit of a buffer, which may also be an
+     * in-memory copy of a file
+     */
+    MappedUtf8Reader(ByteBuffer bytes) {
+        this.bytes = bytes;
+        int start = bytes.position();
+        if (bytes.remaining() >= 3 && (bytes.get(start) & 0xFF) == 0xEF
+                && (bytes.get(start + 1) & 0xFF) == 0xBB && (bytes.get(start + 2) & 0xFF) == 0xBF) {
+            bytes.position(start + 3);
+        }
+    }
+
+    /**
+     * Opens a file for reading. Files too large for one mapping (2 GB) are read through a
+     * UTF-8 stream reader instead.
+     *
+     * @throws FileNotFoundException if the file does not exist, as FileReader would
+     */
+    public static Reader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8);
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedUtf8Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(file + " (No such file or directory)");
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        if (pending >= 0) {
+            out.put((char) pending);
+            pending = -1;
+        }
+
+        while (out.hasRemaining()) {
+            // Fewer than 4 bytes may be the start of a sequence that continues in the mapping
+            if (window.remaining() < 4 && bytes.hasRemaining()) {
+                refill();
+            }
+            boolean endOfInput = !bytes.hasRemaining();
+            int before = out.position();
+            CoderResult result = decoder.decode(window, out, endOfInput);
+            if (result.isOverflow()) {
+                if (out.position() == before && out.remaining() == 1) {
+                    // A surrogate pair does not fit in the one char left
+                    CharBuffer pair = CharBuffer.allocate(2);
+                    decoder.decode(window, pair, endOfInput);
+                    out.put(pair.get(0));
+                    if (pair.position() > 1) {
+                        pending = pair.get(1);
+                    }
+                }
+                break;
+            }
+            if (endOfInput) {
+                break;
+            }
+        }
+
+        int count = out.position() - off;
+        return count == 0 ? -1 : count;
+    }
+
+    private void refill() {
+        window.compact();
+        int n = Math.min(window.remaining(), bytes.remaining());
+        int position = bytes.position();
+        window.put(bytes.duplicate().limit(position + n));
+        bytes.position(position + n);
+        window.flip();
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release: the mapping is unmapped when it is garbage collected
+    }
+}
@@ -0,0 +1,219 @@
+package com.testlang.parser;
+
+import com.testlang.ast.Program;
+import com.testlang.ast.Test;
+
+import java.io.CharArrayReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses one large file on several threads. A pre-scan finds the lines that start a
+ * top-level test block, skipping strings and comments, and the file is cut into chunks at
+ * some of them. The first chunk holds the config, load block and variables along with its
+ * tests; every other chunk is a list of tests, which the grammar accepts as a program of
+ * its own. Chunks are lexed and parsed on a ForkJoinPool with RecursiveDescentParser, each
+ * lexer numbering lines from where its chunk starts, and their tests are merged in source
+ * order.
+ *
+ * A chunk boundary is a point where a sequential parse is between two tests, so a file
+ * whose chunks all parse would also parse as a whole. When a chunk fails, the rest of the
+ * file from that chunk on is parsed again on the calling thread, which reports the same
+ * error at the same line as parsing the whole file would.
+ */
+public final class ParallelParser {
+    /** Files with fewer tests per chunk than this are parsed in one piece */
+    static final int MIN_TESTS_PER_CHUNK = 64;
+
+    private ParallelParser() {
+    }
+
+    /**
+     * Parses the first length chars of source with the common pool
+     */
+    public static Program parse(char[] source, int length) throws Exception {
+        return parse(source, length, ForkJoinPool.commonPool());
+    }
+
+    public static Program parse(char[] source, int length, ForkJoinPool pool) throws Exception {
+        if (pool.getParallelism() < 2) {
+            // Chunks would only run one after another
+            return parseChunk(source, 0, length, 1);
+        }
+        Boundaries tests = findTests(source, length);
+        int chunks = Math.min(pool.getParallelism() * 4, tests.count / MIN_TESTS_PER_CHUNK);
+        if (chunks < 2) {
+            return parseChunk(source, 0, length, 1);
+        }
+
+        // Chunk i starts at the line of test i * count / chunks; the first also has the header
+        int[] starts = new int[chunks + 1];
+        int[] lines = new int[chunks];
+        lines[0] = 1;
+        for (int i = 1; i < chunks; i++) {
+            int test = (int) ((long) i * tests.count / chunks);
+            starts[i] = tests.offsets[test];
+            lines[i] = tests.lines[test];
+        }
+        starts[chunks] = length;
+
+        List<ForkJoinTask<Program>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int start = starts[i];
+            int end = starts[i + 1];
+            int line = lines[i];
+            tasks.add(pool.submit(() -> parseChunk(source, start, end, line)));
+        }
+
+        Program program = null;
+        for (int i = 0; i < chunks; i++) {
+            Program chunk;
+            try {
+                chunk = tasks.get(i).get();
+            } catch (ExecutionException e) {
+                for (int j = i + 1; j < chunks; j++) {
+                    tasks.get(j).cancel(false);
+                }
+                // Throws the error, as the whole file would
+                parseChunk(source, starts[i], length, lines[i]);
+                // Not reached for a chunk boundary found by findTests
+                return parseChunk(source, 0, length, 1);
+            }
+            if (program == null) {
+                program = chunk;
+            } else {
+                for (Test test : chunk.getTests()) {
+                    program.addTest(test);
+                }
+            }
+        }
+        return program;
+    }
+
+    private static Program parseChunk(char[] source, int start, int end, int firstLine) throws Exception {
+        Lexer lexer = new Lexer(new CharArrayReader(source, start, end - start));
+        lexer.setFirstLine(firstLine);
+        return new RecursiveDescentParser(lexer).parse();
+    }
+
+    /**
+     * Offsets and line numbers of the lines that start a top-level test block
+     */
+    static final class Boundaries {
+        int[] offsets = new int[64];
+        int[] lines = new int[64];
+        int count;
+
+        void add(int offset, int line) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lines = Arrays.copyOf(lines, count * 2);
+            }
+            offsets[count] = offset;
+            lines[count] = line;
+            count++;
+        }
+    }
+
+    /**
+     * Finds each line whose first token is "test", an identifier and "{" at brace depth 0,
+     * outside strings and comments. Lines are counted as the lexer counts them.
+     */
+    static Boundaries findTests(char[] s, int length) {
+        Boundaries tests = new Boundaries();
+        int depth = 0;
+        int line = 1;
+        int lineStart = 0;
+        boolean blank = true;  // Only whitespace so far on this line
+        for (int i = 0; i < length; i++) {
+            char c = s[i];
+            if (isLineTerminator(c)) {
+                if (c == '\r' && i + 1 < length && s[i + 1] == '\n') {
+                    i++;
+                }
+                line++;
+                lineStart = i + 1;
+                blank = true;
+                continue;
+            }
+            switch (c) {
+                case ' ':
+                case '\t':
+                    continue;
+                case '"':
+                    // Strings end at the closing quote or, unterminated, at the end of the line
+                    i++;
+                    while (i < length && s[i] != '"' && s[i] != '\r' && s[i] != '\n') {
+                        if (isLineTerminator(s[i])) {
+                            line++;  // Allowed in a string, but still counted as a line by the lexer
+                        } else if (s[i] == '\\' && i + 1 < length && s[i + 1] != '\r' && s[i + 1] != '\n') {
+                            i++;
+                        }
+                        i++;
+                    }
+                    if (i < length && s[i] != '"') {
+                        i--;  // Let the loop count the line end
+                    }
+                    break;
+                case '/':
+                    if (i + 1 < length && s[i + 1] == '/') {
+                        while (i + 1 < length && s[i + 1] != '\r' && s[i + 1] != '\n') {
+                            i++;
+                            if (isLineTerminator(s[i])) {
+                                line++;
+                            }
+                        }
+                    }
+                    break;
+                case '{':
+                    depth++;
+                    break;
+                case '}':
+                    depth--;
+                    break;
+                case 't':
+                    if (blank && depth == 0 && startsTestBlock(s, i, length)) {
+                        tests.add(lineStart, line);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            blank = false;
+        }
+        return tests;
+    }
+
+    /**
+     * JFlex counts these as line ends for yyline, even where the lexer's rules do not
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u000B' || c == '\f' || c == '\u0085'
+            || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean startsTestBlock(char[] s, int i, int length) {
+        if (i + 4 >= length || s[i + 1] != 'e' || s[i + 2] != 's' || s[i + 3] != 't') {
+            return false;
+        }
+        int j = i + 4;
+        int spaces = j;
+        while (j < length && (s[j] == ' ' || s[j] == '\t' || s[j] == '\r' || s[j] == '\n')) {
+            j++;
+        }
+        if (j == spaces || j == length || !(Character.isLetter(s[j]) && s[j] < 128 || s[j] == '_')) {
+            return false;
+        }
+        while (j < length && (s[j] < 128 && Character.isLetterOrDigit(s[j]) || s[j] == '_')) {
+            j++;
+        }
+        while (j < length && (s[j] == ' ' || s[j] == '\t' || s[j] == '\r' || s[j] == '\n')) {
+            j++;
+        }
+        return j < length && s[j] == '{';
+    }
+}
@@ -0,0 +1,326 @@
+package com.testlang.parser;
+
+import com.testlang.ast.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * On-disk cache of parsed and validated programs, keyed by a hash of the source bytes
+ * and the grammar version. Entries use a compact binary encoding of the AST, followed by
+ * the warnings validation printed, so a cache hit reports them again.
+ */
+public class ProgramCache {
+    /** Bump whenever the grammar or the AST classes change, so stale entries are never read */
+    public static final String GRAMMAR_VERSION = "9";
+
+    private static final int MAGIC = 0x544C4143; // "TLAC"
+
+    private static final byte REQUEST = 0;
+    private static final byte ASSERTION = 1;
+
+    private static final byte STRING_VALUE = 0;
+    private static final byte INTEGER_VALUE = 1;
+
+    private final Path directory;
+
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cache configured by the testlang.cache.dir system property or the
+     * TESTLANG_CACHE_DIR environment variable, or null when caching is off
+     */
+    public static ProgramCache fromEnvironment() {
+        String dir = System.getProperty("testlang.cache.dir", System.getenv("TESTLANG_CACHE_DIR"));
+        return dir != null && !dir.isEmpty() ? new ProgramCache(Paths.get(dir)) : null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public static String key(byte[] source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(GRAMMAR_VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source);
+
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Loads the program cached for the given key, or returns null on a miss.
+     * A damaged entry is treated as a miss.
+     */
+    public Program load(String key) {
+        return load(key, null);
+    }
+
+    /**
+     * Loads the program cached for the given key and prints the validation warnings stored
+     * with it, or returns null on a miss. A damaged entry is treated as a miss.
+     */
+    public Program load(String key, PrintStream warnings) {
+        Path file = directory.resolve(key + ".ast");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        // The whole entry is in memory, so every length can be checked against what is left
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            Program program = read(in);
+            String text = readString(in);
+            program.markValidated();
+            if (warnings != null && text != null) {
+                warnings.print(text);
+            }
+            return program;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores a validated program. The entry is written to a temporary file and moved into
+     * place, so concurrent readers never see a partial entry.
+     */
+    public void store(String key, Program program) throws IOException {
+        store(key, program, null);
+    }
+
+    /**
+     * Stores a validated program with the warnings its validation printed
+     */
+    public void store(String key, Program program, String warnings) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out, program);
+                writeString(out, warnings);
+            }
+            Files.move(temp, directory.resolve(key + ".ast"), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Encoding
+
+    static void write(DataOutputStream out, Program program) throws IOException {
+        out.writeInt(MAGIC);
+
+        Config config = program.getConfig();
+        out.writeBoolean(config != null);
+        if (config != null) {
+            writeString(out, config.getBaseUrl());
+            writeHeaders(out, config.getHeaders());
+            out.writeLong(config.getMaxBodySize() != null ? config.getMaxBodySize() : -1);
+            writeString(out, config.getHttpVersion());
+            out.writeLong(config.getConnectTimeoutMillis() != null ? config.getConnectTimeoutMillis() : -1);
+            out.writeLong(config.getRequestTimeoutMillis() != null ? config.getRequestTimeoutMillis() : -1);
+            out.writeInt(config.getExecutorThreads() != null ? config.getExecutorThreads() : -1);
+            out.writeBoolean(config.isVirtualThreads());
+            writeString(out, config.getRedirects());
+            out.writeInt(config.getWarmupRequests() != null ? config.getWarmupRequests() : -1);
+        }
+
+        LoadConfig load = program.getLoadConfig();
+        out.writeBoolean(load != null);
+        if (load != null) {
+            out.writeInt(load.getUsers() != null ? load.getUsers() : -1);
+            out.writeDouble(load.getRatePerSecond() != null ? load.getRatePerSecond() : -1);
+            out.writeLong(load.getDurationMillis() != null ? load.getDurationMillis() : -1);
+        }
+
+        out.writeInt(program.getVariables().size());
+        for (Variable var : program.getVariables()) {
+            writeString(out, var.getName());
+            if (var.getValue() instanceof Integer) {
+                out.writeByte(INTEGER_VALUE);
+                out.writeInt((Integer) var.getValue());
+            } else {
+                out.writeByte(STRING_VALUE);
+                writeString(out, (String) var.getValue());
+            }
+        }
+
+        out.writeInt(program.getTests().size());
+        for (Test test : program.getTests()) {
+            writeString(out, test.getName());
+            out.writeInt(test.getStatements().size());
+            for (Statement stmt : test.getStatements()) {
+                if (stmt instanceof Request) {
+                    Request req = (Request) stmt;
+                    out.writeByte(REQUEST);
+                    writeString(out, req.getMethod());
+                    writeString(out, req.getUrl());
+                    writeHeaders(out, req.getHeaders());
+                    writeString(out, req.getBody());
+                } else {
+                    Assertion assertion = (Assertion) stmt;
+                    out.writeByte(ASSERTION);
+                    out.writeByte(assertion.getType().ordinal());
+                    writeString(out, assertion.getKey());
+                    writeString(out, assertion.getValue());
+                    out.writeInt(assertion.getStatusCode() != null ? assertion.getStatusCode() : -1);
+                    out.writeLong(assertion.getTimeLimitMillis() != null ? assertion.getTimeLimitMillis() : -1);
+                    out.writeDouble(assertion.getPercentile() != null ? assertion.getPercentile() : -1);
+                    out.writeInt(assertion.getRuns() != null ? assertion.getRuns() : -1);
+                }
+            }
+        }
+    }
+
+    static Program read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cached program");
+        }
+
+        Program program = new Program();
+        if (in.readBoolean()) {
+            Config config = new Config();
+            config.setBaseUrl(readString(in));
+            int headers = in.readInt();
+            for (int i = 0; i < headers; i++) {
+                config.addHeader(new Header(readString(in), readString(in)));
+            }
+            long maxBodySize = in.readLong();
+            if (maxBodySize >= 0) {
+                config.setMaxBodySize(maxBodySize);
+            }
+            config.setHttpVersion(readString(in));
+            long connectTimeout = in.readLong();
+            if (connectTimeout >= 0) {
+                config.setConnectTimeoutMillis(connectTimeout);
+            }
+            long requestTimeout = in.readLong();
+            if (requestTimeout >= 0) {
+                config.setRequestTimeoutMillis(requestTimeout);
+            }
+            int executorThreads = in.readInt();
+            if (executorThreads >= 0) {
+                config.setExecutorThreads(executorThreads);
+            }
+            config.setVirtualThreads(in.readBoolean());
+            config.setRedirects(readString(in));
+            int warmupRequests = in.readInt();
+            if (warmupRequests >= 0) {
+                config.setWarmupRequests(warmupRequests);
+            }
+            program.setConfig(config);
+        }
+
+        if (in.readBoolean()) {
+            LoadConfig load = new LoadConfig();
+            int users = in.readInt();
+            if (users >= 0) {
+                load.setUsers(users);
+            }
+            double rate = in.readDouble();
+            if (rate >= 0) {
+                load.setRatePerSecond(rate);
+            }
+            long duration = in.readLong();
+            if (duration >= 0) {
+                load.setDurationMillis(duration);
+            }
+            program.setLoadConfig(load);
+        }
+
+        int variables = in.readInt();
+        for (int i = 0; i < variables; i++) {
+            String name = readString(in);
+            Object value = in.readByte() == INTEGER_VALUE ? (Object) in.readInt() : readString(in);
+            program.addVariable(new Variable(name, value));
+        }
+
+        int tests = in.readInt();
+        for (int i = 0; i < tests; i++) {
+            Test test = new Test(readString(in));
+            int statements = in.readInt();
+            for (int j = 0; j < statements; j++) {
+                if (in.readByte() == REQUEST) {
+                    Request req = new Request(readString(in), readString(in));
+                    int headers = in.readInt();
+                    for (int k = 0; k < headers; k++) {
+                        req.addHeader(new Header(readString(in), readString(in)));
+                    }
+                    req.setBody(readString(in));
+                    test.addStatement(req);
+                } else {
+                    Assertion assertion = new Assertion(Assertion.Type.values()[in.readByte()]);
+                    assertion.setKey(readString(in));
+                    assertion.setValue(readString(in));
+                    int statusCode = in.readInt();
+                    if (statusCode >= 0) {
+                        assertion.setStatusCode(statusCode);
+                    }
+                    long timeLimit = in.readLong();
+                    if (timeLimit >= 0) {
+                        assertion.setTimeLimitMillis(timeLimit);
+                    }
+                    double percentile = in.readDouble();
+                    if (percentile >= 0) {
+                        assertion.setPercentile(percentile);
+                    }
+                    int runs = in.readInt();
+                    if (runs >= 0) {
+                        assertion.setRuns(runs);
+                    }
+                    test.addStatement(assertion);
+                }
+            }
+            program.addTest(test);
+        }
+        return program;
+    }
+
+    private static void writeHeaders(DataOutputStream out, List<Header> headers) throws IOException {
+        out.writeInt(headers.size());
+        for (Header header : headers) {
+            writeString(out, header.getKey());
+            writeString(out, header.getValue());
+        }
+    }
+
+    // Length-prefixed UTF-8; unlike writeUTF this has no 64 KB limit, and -1 encodes null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        // A damaged length must not allocate more than the entry could hold
+        if (length > in.available()) {
+            throw new EOFException("String length " + length + " exceeds the rest of the entry");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
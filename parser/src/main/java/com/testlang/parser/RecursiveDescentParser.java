@@ -0,0 +1,310 @@
+package com.testlang.parser;
+
+import com.testlang.ast.*;
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+
+import java.util.function.Consumer;
+
+/**
+ * Hand-written parser for the grammar in parser.cup, with one token of lookahead. It builds
+ * the same Program as the generated parser, streams tests to consumers the same way, and
+ * fails on the same token with the same ParserException, so the two can be swapped; it
+ * just skips the LR tables and the Symbol stack.
+ */
+public class RecursiveDescentParser {
+    private final Scanner scanner;
+    private final Program program = new Program();
+    private Consumer<Program> headerConsumer;
+    private Consumer<Test> testConsumer;
+    private boolean headerDelivered = false;
+    private Symbol token;
+
+    public RecursiveDescentParser(Scanner scanner) {
+        this.scanner = scanner;
+    }
+
+    /**
+     * Streams tests to the consumer instead of collecting them in the Program
+     */
+    public void setTestConsumer(Consumer<Test> consumer) {
+        this.testConsumer = consumer;
+    }
+
+    /**
+     * Receives the Program holding config and variables, before the first streamed test
+     */
+    public void setHeaderConsumer(Consumer<Program> consumer) {
+        this.headerConsumer = consumer;
+    }
+
+    /**
+     * program ::= [config_block] [load_block] variable_decl* test_block+
+     */
+    public Program parse() throws Exception {
+        token = scanner.next_token();
+        if (token.sym == sym.CONFIG) {
+            program.setConfig(configBlock());
+        }
+        if (token.sym == sym.LOAD) {
+            program.setLoadConfig(loadBlock());
+        }
+        while (token.sym == sym.LET) {
+            program.addVariable(variableDecl());
+        }
+        do {
+            Test test = testBlock();
+            expectNext(sym.TEST, sym.EOF);
+            addTest(test);
+        } while (token.sym == sym.TEST);
+        return program;
+    }
+
+    private void addTest(Test test) {
+        if (testConsumer == null) {
+            program.addTest(test);
+            return;
+        }
+        if (!headerDelivered) {
+            headerDelivered = true;
+            if (headerConsumer != null) {
+                headerConsumer.accept(program);
+            }
+        }
+        testConsumer.accept(test);
+    }
+
+    private Config configBlock() throws Exception {
+        expect(sym.CONFIG);
+        expect(sym.LBRACE);
+        Config config = new Config();
+        do {
+            if (token.sym == sym.BASE_URL) {
+                advance();
+                expect(sym.EQUALS);
+                config.setBaseUrl(string());
+                expect(sym.SEMICOLON);
+            } else if (token.sym == sym.HEADER) {
+                advance();
+                String key = string();
+                expect(sym.EQUALS);
+                config.addHeader(new Header(key, string()));
+                expect(sym.SEMICOLON);
+            } else {
+                Symbol name = expect(sym.IDENTIFIER);
+                expect(sym.EQUALS);
+                Object value = optionValue();
+                expect(sym.SEMICOLON);
+                expectNext(sym.BASE_URL, sym.HEADER, sym.IDENTIFIER, sym.RBRACE);
+                ConfigOptions.configOption((String) name.value, value, name.left).accept(config);
+            }
+        } while (token.sym != sym.RBRACE);
+        advance();
+        return config;
+    }
+
+    private LoadConfig loadBlock() throws Exception {
+        expect(sym.LOAD);
+        expect(sym.LBRACE);
+        LoadConfig load = new LoadConfig();
+        do {
+            Symbol name = expect(sym.IDENTIFIER);
+            expect(sym.EQUALS);
+            Object value = optionValue();
+            expect(sym.SEMICOLON);
+            expectNext(sym.IDENTIFIER, sym.RBRACE);
+            ConfigOptions.setLoadOption(load, (String) name.value, value, name.left);
+        } while (token.sym != sym.RBRACE);
+        advance();
+        return load;
+    }
+
+    /**
+     * name ::= IDENTIFIER | LOAD, as load is only a keyword where a load block can start
+     */
+    private String name() throws Exception {
+        if (token.sym == sym.LOAD) {
+            advance();
+            return "load";
+        }
+        return (String) expect(sym.IDENTIFIER).value;
+    }
+
+    private Object optionValue() throws Exception {
+        switch (token.sym) {
+            case sym.NUMBER:
+            case sym.DURATION:
+            case sym.RATE:
+            case sym.STRING:
+                return advance().value;
+            default:
+                throw syntaxError();
+        }
+    }
+
+    private Variable variableDecl() throws Exception {
+        expect(sym.LET);
+        String name = name();
+        expect(sym.EQUALS);
+        Variable variable;
+        if (token.sym == sym.STRING) {
+            variable = new Variable(name, (String) advance().value);
+        } else {
+            variable = new Variable(name, (Integer) expect(sym.NUMBER).value);
+        }
+        expect(sym.SEMICOLON);
+        return variable;
+    }
+
+    private Test testBlock() throws Exception {
+        expect(sym.TEST);
+        Test test = new Test(name());
+        expect(sym.LBRACE);
+        do {
+            test.addStatement(token.sym == sym.EXPECT ? assertion() : request());
+        } while (token.sym != sym.RBRACE);
+        advance();
+        return test;
+    }
+
+    private Request request() throws Exception {
+        String method;
+        switch (token.sym) {
+            case sym.GET:
+                method = "GET";
+                break;
+            case sym.DELETE:
+                method = "DELETE";
+                break;
+            case sym.POST:
+                method = "POST";
+                break;
+            case sym.PUT:
+                method = "PUT";
+                break;
+            default:
+                throw syntaxError();
+        }
+        advance();
+        Request request = new Request(method, string());
+
+        if (token.sym == sym.LBRACE && (method.equals("POST") || method.equals("PUT"))) {
+            advance();
+            while (token.sym != sym.RBRACE) {
+                if (token.sym == sym.HEADER) {
+                    advance();
+                    String key = string();
+                    expect(sym.EQUALS);
+                    request.addHeader(new Header(key, string()));
+                } else {
+                    expect(sym.BODY);
+                    expect(sym.EQUALS);
+                    request.setBody(string());
+                }
+                expect(sym.SEMICOLON);
+            }
+            advance();
+        } else if (method.equals("POST") || method.equals("PUT")) {
+            // A body block is required, even an empty one
+            throw syntaxError();
+        }
+        expect(sym.SEMICOLON);
+        return request;
+    }
+
+    private Assertion assertion() throws Exception {
+        expect(sym.EXPECT);
+        Assertion assertion;
+        switch (token.sym) {
+            case sym.STATUS:
+                advance();
+                expect(sym.EQUALS);
+                assertion = new Assertion(Assertion.Type.STATUS_EQUALS);
+                assertion.setStatusCode((Integer) expect(sym.NUMBER).value);
+                break;
+            case sym.HEADER:
+                advance();
+                String key = string();
+                if (token.sym == sym.EQUALS) {
+                    advance();
+                    assertion = new Assertion(Assertion.Type.HEADER_EQUALS);
+                } else {
+                    expect(sym.CONTAINS);
+                    assertion = new Assertion(Assertion.Type.HEADER_CONTAINS);
+                }
+                assertion.setKey(key);
+                assertion.setValue(string());
+                break;
+            case sym.BODY:
+                advance();
+                expect(sym.CONTAINS);
+                assertion = new Assertion(Assertion.Type.BODY_CONTAINS);
+                assertion.setValue(string());
+                break;
+            case sym.TIME:
+                advance();
+                expect(sym.LT);
+                assertion = new Assertion(Assertion.Type.RESPONSE_TIME_BELOW);
+                assertion.setTimeLimitMillis((Long) expect(sym.DURATION).value);
+                break;
+            case sym.PERCENTILE:
+                assertion = new Assertion(Assertion.Type.PERCENTILE_BELOW);
+                assertion.setPercentile((Double) advance().value);
+                expect(sym.LT);
+                assertion.setTimeLimitMillis((Long) expect(sym.DURATION).value);
+                expect(sym.OVER);
+                assertion.setRuns((Integer) expect(sym.NUMBER).value);
+                expect(sym.RUNS);
+                break;
+            default:
+                throw syntaxError();
+        }
+        expect(sym.SEMICOLON);
+        return assertion;
+    }
+
+    private String string() throws Exception {
+        return (String) expect(sym.STRING).value;
+    }
+
+    private Symbol expect(int kind) throws Exception {
+        if (token.sym != kind) {
+            throw syntaxError();
+        }
+        return advance();
+    }
+
+    /**
+     * Fails unless the next token is one of kinds. Used before an action that can throw, so
+     * that a syntax error after it is reported first, as the generated parser reads the
+     * following token before it reduces.
+     */
+    private void expectNext(int... kinds) throws ParserException {
+        for (int kind : kinds) {
+            if (token.sym == kind) {
+                return;
+            }
+        }
+        throw syntaxError();
+    }
+
+    /**
+     * Moves to the next token and returns the one before it
+     */
+    private Symbol advance() throws Exception {
+        Symbol current = token;
+        token = scanner.next_token();
+        return current;
+    }
+
+    /**
+     * Returns the exception the generated parser throws for the current token, with the
+     * same detail
+     */
+    private ParserException syntaxError() {
+        String detail = token.value != null
+            ? "unexpected '" + token.value + "'"
+            : "unexpected " + sym.terminalNames[token.sym];
+        return new ParserException("Cannot recover from syntax error. Parsing aborted.", token.left, detail);
+    }
+}
@@ -1,82 +1,566 @@
 package com.testlang.parser;
 
 import com.testlang.ast.Program;
+import com.testlang.ast.Test;
 import com.testlang.codegen.CodeGenerator;
+import com.testlang.runtime.Interpreter;
+import com.testlang.runtime.TestReport;
+import com.testlang.runtime.TestResult;
 import java_cup.runtime.Symbol;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Main entry point for the TestLang++ parser
  */
 public class TestLangParser {
 
+    /** System property that selects the parser: "descent" for the hand-written one */
+    public static final String PARSER_PROPERTY = "testlang.parser";
+
+    /** System property that turns on parsing each file on several threads when "true" */
+    public static final String PARALLEL_PROPERTY = "testlang.parser.parallel";
+
+    // Parse cache, or null when caching is off
+    private static volatile ProgramCache cache = ProgramCache.fromEnvironment();
+    // Whether to parse with RecursiveDescentParser instead of the generated CUP parser
+    private static volatile boolean recursiveDescent = "descent".equals(System.getProperty(PARSER_PROPERTY));
+    // Whether to split large files into chunks of tests parsed by ParallelParser
+    private static volatile boolean parallel = Boolean.getBoolean(PARALLEL_PROPERTY);
+
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.err.println("Usage: java TestLangParser <input.test> [output.java]");
-            System.err.println("  If output file is not specified, generates GeneratedTests.java");
-            System.exit(1);
+        Path socket = CompilerDaemon.defaultSocket();
+        boolean daemonMode = false;
+        boolean clientMode = false;
+        int argIndex = 0;
+        while (argIndex < args.length) {
+            if (args[argIndex].equals("--daemon")) {
+                daemonMode = true;
+                argIndex++;
+            } else if (args[argIndex].equals("--client")) {
+                clientMode = true;
+                argIndex++;
+            } else if (args[argIndex].equals("--socket") && argIndex + 1 < args.length) {
+                socket = Paths.get(args[argIndex + 1]);
+                argIndex += 2;
+            } else {
+                break;
+            }
         }
+        String[] rest = Arrays.copyOfRange(args, argIndex, args.length);
+        Path workingDir = Paths.get("").toAbsolutePath();
 
-        String inputFile = args[0];
-        String outputFile = args.length > 1 ? args[1] : "GeneratedTests.java";
-
+        int status;
         try {
-            // Parse the input file
-            Program program = parse(inputFile);
+            if (daemonMode) {
+                serveDaemon(socket);
+                return;
+            }
 
-            // Generate code
-            CodeGenerator generator = new CodeGenerator(program);
-            String generatedCode = generator.generate();
+            SocketChannel channel = clientMode ? CompilerDaemon.connect(socket) : null;
+            if (channel != null) {
+                try (channel) {
+                    status = CompilerDaemon.forward(channel, workingDir, rest, System.out, System.err);
+                }
+            } else {
+                // No daemon listening: compile in this JVM instead
+                status = run(rest, workingDir, System.out, System.err);
+            }
+        } catch (IOException e) {
+            System.err.println("\n=== IO ERROR ===");
+            System.err.println("Daemon connection failed: " + e.getMessage());
+            status = 1;
+        }
+
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    private static void serveDaemon(Path socket) throws IOException {
+        CompilerDaemon daemon = new CompilerDaemon(socket);
+        daemon.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            } catch (IOException e) {
+                // Exiting anyway
+            }
+        }));
+        System.out.println("TestLang daemon listening on " + socket);
+        daemon.serve();
+    }
 
-            // Write to output file
-            try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
-                writer.print(generatedCode);
+    /**
+     * Runs one compile or run command and returns its exit status. Relative paths are
+     * resolved against workingDir, and all output goes to out and err, so the daemon can
+     * serve several clients at once.
+     */
+    public static int run(String[] args, Path workingDir, PrintStream out, PrintStream err) {
+        boolean runMode = false;
+        boolean streamMode = false;
+        ProgramCache programCache = cache;
+        Path batchDir = null;
+        int jobs = 0;
+        int argIndex = 0;
+        while (argIndex < args.length && args[argIndex].startsWith("--")) {
+            if (args[argIndex].equals("--run")) {
+                runMode = true;
+                argIndex++;
+            } else if (args[argIndex].equals("--stream")) {
+                streamMode = true;
+                argIndex++;
+            } else if (args[argIndex].equals("--batch") && argIndex + 1 < args.length) {
+                batchDir = workingDir.resolve(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--jobs") && argIndex + 1 < args.length) {
+                try {
+                    jobs = Integer.parseInt(args[argIndex + 1]);
+                } catch (NumberFormatException e) {
+                    printUsage(err);
+                    return 1;
+                }
+                argIndex += 2;
+            } else if (args[argIndex].equals("--cache") && argIndex + 1 < args.length) {
+                programCache = new ProgramCache(workingDir.resolve(args[argIndex + 1]));
+                argIndex += 2;
+            } else {
+                printUsage(err);
+                return 1;
             }
+        }
+
+        if (argIndex >= args.length || (runMode && batchDir != null) || (streamMode && !runMode)) {
+            printUsage(err);
+            return 1;
+        }
 
-            System.out.println("Successfully generated " + outputFile);
+        if (batchDir != null) {
+            List<String> patterns = Arrays.asList(args).subList(argIndex, args.length);
+            return runBatch(patterns, workingDir, batchDir, programCache, jobs, out, err);
+        }
+
+        String inputFile = args[argIndex];
+        String outputFile = !runMode && argIndex + 1 < args.length ? args[argIndex + 1] : "GeneratedTests.java";
+        String inputPath = workingDir.resolve(inputFile).toString();
+
+        try {
+            if (runMode) {
+                // Execute the AST directly, skipping code generation and javac
+                return runFile(inputPath, programCache, streamMode, out, err) ? 0 : 1;
+            } else {
+                generateFile(inputPath, workingDir.resolve(outputFile), null, programCache, err);
+                out.println("Successfully generated " + outputFile);
+                return 0;
+            }
 
         } catch (LexerException e) {
-            System.err.println("\n=== LEXER ERROR ===");
-            System.err.println(e.getMessage());
-            System.err.println("\nPlease fix the syntax error and try again.");
-            System.exit(1);
+            err.println("\n=== LEXER ERROR ===");
+            err.println(e.getMessage());
+            err.println("\nPlease fix the syntax error and try again.");
+            return 1;
 
         } catch (ParserException e) {
-            System.err.println("\n=== PARSER ERROR ===");
-            System.err.println(e.getMessage());
-            System.err.println("\nPlease check your .test file syntax.");
-            System.exit(1);
+            err.println("\n=== PARSER ERROR ===");
+            err.println(e.getMessage());
+            err.println("\nPlease check your .test file syntax.");
+            return 1;
 
         } catch (ValidationException e) {
-            System.err.println("\n=== VALIDATION ERROR ===");
-            System.err.println(e.getMessage());
-            System.err.println("\nPlease ensure your tests meet the requirements:");
-            System.err.println("  - At least 1 HTTP request per test");
-            System.err.println("  - At least 2 assertions per test");
-            System.exit(1);
+            err.println("\n=== VALIDATION ERROR ===");
+            err.println(e.getMessage());
+            err.println("\nPlease ensure your tests meet the requirements:");
+            err.println("  - At least 1 HTTP request per test");
+            err.println("  - At least 2 assertions per test");
+            return 1;
 
         } catch (FileNotFoundException e) {
-            System.err.println("\n=== FILE ERROR ===");
-            System.err.println("Input file not found: " + inputFile);
-            System.exit(1);
+            err.println("\n=== FILE ERROR ===");
+            err.println("Input file not found: " + inputFile);
+            return 1;
 
         } catch (IOException e) {
-            System.err.println("\n=== IO ERROR ===");
-            System.err.println("Error reading/writing files: " + e.getMessage());
-            System.exit(1);
+            err.println("\n=== IO ERROR ===");
+            err.println("Error reading/writing files: " + e.getMessage());
+            return 1;
 
         } catch (Exception e) {
-            System.err.println("\n=== UNEXPECTED ERROR ===");
-            System.err.println("Error: " + e.getMessage());
-            e.printStackTrace();
-            System.exit(1);
+            err.println("\n=== UNEXPECTED ERROR ===");
+            err.println("Error: " + e.getMessage());
+            e.printStackTrace(err);
+            return 1;
+        }
+    }
+
+    private static void printUsage(PrintStream err) {
+        err.println("Usage: java TestLangParser [--cache <dir>] <input.test> [output.java]");
+        err.println("       java TestLangParser [--cache <dir>] --run [--stream] <input.test>");
+        err.println("       java TestLangParser [--cache <dir>] [--jobs <n>] --batch <outDir> <inputs...>");
+        err.println("       java TestLangParser [--socket <path>] --daemon");
+        err.println("       java TestLangParser [--socket <path>] --client <command...>");
+        err.println("  If output file is not specified, generates GeneratedTests.java");
+        err.println("  --run executes the tests directly instead of generating Java code");
+        err.println("  --stream runs each test as soon as it is parsed, before the rest of the file");
+        err.println("           is checked, so earlier tests may send requests before an error is found");
+        err.println("  --cache reuses parsed programs stored in <dir> for unchanged input");
+        err.println("          (also set by -Dtestlang.cache.dir or TESTLANG_CACHE_DIR)");
+        err.println("  --batch compiles files, directories and globs in parallel into <outDir>,");
+        err.println("          one class per file named after it (user-api.test -> UserApiTests)");
+        err.println("  --daemon serves commands from a warm JVM on a Unix domain socket");
+        err.println("  --client sends the command to the daemon, or runs it locally if none is listening");
+    }
+
+    /**
+     * Compiles every input on its own, reporting each failure and a summary at the end.
+     * Returns 0 only if every file compiled.
+     */
+    private static int runBatch(List<String> patterns, Path workingDir, Path outputDir,
+                                ProgramCache programCache, int jobs, PrintStream out, PrintStream err) {
+        List<BatchCompiler.FileResult> results;
+        try {
+            List<Path> inputs = BatchCompiler.expand(patterns, workingDir);
+            if (inputs.isEmpty()) {
+                err.println("\n=== FILE ERROR ===");
+                err.println("No .test files found");
+                return 1;
+            }
+            results = new BatchCompiler(outputDir, programCache, jobs).compile(inputs);
+        } catch (IOException e) {
+            err.println("\n=== IO ERROR ===");
+            err.println("Error reading/writing files: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("\nBatch compilation interrupted");
+            return 1;
+        }
+
+        int failed = 0;
+        for (BatchCompiler.FileResult result : results) {
+            String input = displayPath(workingDir, result.getInput());
+            if (!result.getWarnings().isEmpty()) {
+                err.print(result.getWarnings().replaceAll("(?m)^(?=.)", input + ": "));
+            }
+            if (result.isSuccess()) {
+                out.println("Generated " + displayPath(workingDir, result.getOutput()) + " from " + input);
+            } else {
+                failed++;
+                err.println("\n=== FAILED: " + input + " ===");
+                err.println(result.getError());
+            }
+        }
+
+        out.println("\nCompiled " + (results.size() - failed) + " of " + results.size() + " files"
+            + (failed > 0 ? " (" + failed + " failed)" : ""));
+        return failed > 0 ? 1 : 0;
+    }
+
+    private static String displayPath(Path workingDir, Path path) {
+        return path.startsWith(workingDir) ? workingDir.relativize(path).toString() : path.toString();
+    }
+
+    /**
+     * Generates code for each test as soon as it is parsed. Output goes to a temporary file
+     * that replaces the target only once the whole input has parsed and validated, so an
+     * error still leaves no partial output.
+     *
+     * @param className name of the generated class, or null for GeneratedTests
+     */
+    static void generateFile(String inputFile, Path outputFile, String className, ProgramCache programCache,
+                             PrintStream err) throws Exception {
+        Path output = outputFile.toAbsolutePath();
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                if (programCache != null) {
+                    // A whole program is needed to store it; cache hits skip parsing and validation
+                    CodeGenerator generator = new CodeGenerator(parse(inputFile, programCache, err));
+                    generator.setWarningStream(err);
+                    if (className != null) {
+                        generator.setClassName(className);
+                    }
+                    generator.generate(channel);
+                } else {
+                    StreamingGeneration generation = new StreamingGeneration(channel, className, err);
+                    parseStreaming(inputFile, generation::begin, generation::generateTest);
+                    generation.end();
+                }
+            }
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Runs the tests of a file and returns whether all of them passed. By default the whole
+     * file is parsed and validated first, so a syntax error near the end does not leave the
+     * requests of earlier tests already sent. In stream mode each test runs as soon as it is
+     * parsed and validated, and is not kept.
+     */
+    private static boolean runFile(String inputFile, ProgramCache programCache, boolean stream,
+                                   PrintStream out, PrintStream err) throws Exception {
+        StreamingRun run = new StreamingRun(out, err);
+
+        if (stream && programCache == null) {
+            TestReport.printHeader(out);
+            parseStreaming(inputFile, run::begin, run::runTest);
+        } else {
+            Program program = parse(inputFile, programCache, err);
+            CodeGenerator validator = new CodeGenerator(program);
+            validator.setWarningStream(err);
+            validator.validate();
+
+            TestReport.printHeader(out);
+            run.begin(program);
+            for (Test test : program.getTests()) {
+                run.runTest(test);
+            }
+        }
+        run.finish();
+        TestReport.printSummary(run.results, out);
+
+        return TestReport.allPassed(run.results);
+    }
+
+    private static class StreamingGeneration {
+        private final FileChannel channel;
+        private final String className;
+        private final PrintStream err;
+        private CodeGenerator generator;
+
+        StreamingGeneration(FileChannel channel, String className, PrintStream err) {
+            this.channel = channel;
+            this.className = className;
+            this.err = err;
+        }
+
+        void begin(Program header) throws IOException {
+            generator = new CodeGenerator(header);
+            generator.setWarningStream(err);
+            if (className != null) {
+                generator.setClassName(className);
+            }
+            generator.begin(channel);
+        }
+
+        void generateTest(Test test) throws ValidationException, IOException {
+            generator.generateTest(test);
+        }
+
+        void end() throws ValidationException, IOException {
+            generator.end();
+        }
+    }
+
+    private static class StreamingRun {
+        private final List<TestResult> results = new ArrayList<>();
+        private final PrintStream out;
+        private final PrintStream err;
+        private CodeGenerator validator;
+        private Interpreter interpreter;
+        private boolean validated;
+
+        StreamingRun(PrintStream out, PrintStream err) {
+            this.out = out;
+            this.err = err;
+        }
+
+        void begin(Program header) {
+            validator = new CodeGenerator(header);
+            validator.setWarningStream(err);
+            interpreter = new Interpreter(header);
+            validated = header.isValidated();
+        }
+
+        void runTest(Test test) throws ValidationException {
+            if (!validated) {
+                validator.validateTest(test);
+            }
+            TestResult result = interpreter.runTest(test);
+            TestReport.printResult(result, out);
+            results.add(result);
+        }
+
+        void finish() throws ValidationException {
+            if (!validated) {
+                validator.finishValidation();
+            }
+        }
+    }
+
+    /**
+     * Consumer whose checked exceptions abort the parse
+     */
+    private interface StreamConsumer<T> {
+        void accept(T value) throws Exception;
+    }
+
+    private static class StreamAbort extends RuntimeException {
+        StreamAbort(Exception cause) {
+            super(cause);
         }
     }
 
+    private static Program parseStreaming(String filename, StreamConsumer<Program> onHeader,
+                                          StreamConsumer<Test> onTest) throws Exception {
+        try {
+            return parse(filename, header -> {
+                try {
+                    onHeader.accept(header);
+                } catch (Exception e) {
+                    throw new StreamAbort(e);
+                }
+            }, test -> {
+                try {
+                    onTest.accept(test);
+                } catch (Exception e) {
+                    throw new StreamAbort(e);
+                }
+            });
+        } catch (StreamAbort e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    public static void setCache(ProgramCache programCache) {
+        cache = programCache;
+    }
+
+    public static ProgramCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Chooses between the hand-written recursive descent parser and the generated one. Both
+     * build the same Program and report the same errors.
+     */
+    public static void setRecursiveDescent(boolean enabled) {
+        recursiveDescent = enabled;
+    }
+
+    public static boolean isRecursiveDescent() {
+        return recursiveDescent;
+    }
+
+    /**
+     * Parses each file with ParallelParser, which builds the same Program and reports the
+     * same errors, whichever parser is selected
+     */
+    public static void setParallel(boolean enabled) {
+        parallel = enabled;
+    }
+
+    public static boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Parses a file. When a cache is configured, a file whose bytes were parsed and validated
+     * before is loaded from the cache without running the lexer, parser or validation.
+     */
     public static Program parse(String filename) throws Exception {
-        try (FileReader fileReader = new FileReader(filename)) {
-            Lexer lexer = new Lexer(fileReader);
+        return parse(filename, cache, System.err);
+    }
+
+    private static Program parse(String filename, ProgramCache programCache, PrintStream err)
+            throws Exception {
+        if (programCache == null) {
+            try (Reader reader = MappedUtf8Reader.open(Paths.get(filename))) {
+                return parse(reader);
+            }
+        }
+
+        byte[] source;
+        try (FileInputStream in = new FileInputStream(filename)) {
+            source = in.readAllBytes();
+        }
+
+        String key = ProgramCache.key(source);
+        Program program = programCache.load(key, err);
+        if (program != null) {
+            return program;
+        }
+
+        program = parse(new MappedUtf8Reader(ByteBuffer.wrap(source)));
+        try {
+            // Warnings are kept with the entry so later hits print them too
+            ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+            CodeGenerator validator = new CodeGenerator(program);
+            validator.setWarningStream(new PrintStream(warnings, true, StandardCharsets.UTF_8));
+            validator.validate();
+            String text = warnings.toString(StandardCharsets.UTF_8);
+            err.print(text);
+            programCache.store(key, program, text);
+        } catch (ValidationException e) {
+            // Invalid programs are not cached; the error is reported when they are used
+        } catch (IOException e) {
+            err.println("Warning: Could not write parse cache: " + e.getMessage());
+        }
+        return program;
+    }
+
+    private static Program parse(Reader reader) throws Exception {
+        if (parallel) {
+            CharArrayWriter text = new CharArrayWriter();
+            reader.transferTo(text);
+            return ParallelParser.parse(text.toCharArray(), text.size());
+        }
+        Lexer lexer = new Lexer(reader);
+        if (recursiveDescent) {
+            return new RecursiveDescentParser(lexer).parse();
+        }
+        parser parser = new parser(lexer);
+
+        Symbol result = parser.parse();
+        return (Program) result.value;
+    }
+
+    /**
+     * Parses a file in streaming mode: each test is handed to onTest as soon as it has been
+     * parsed, and is not kept. onHeader receives the config and variables before the first
+     * test. The returned Program holds the config and variables only.
+     *
+     * In parallel mode the whole file is parsed before the first test is handed on.
+     */
+    public static Program parse(String filename, Consumer<Program> onHeader, Consumer<Test> onTest)
+            throws Exception {
+        try (Reader reader = MappedUtf8Reader.open(Paths.get(filename))) {
+            if (parallel) {
+                Program program = parse(reader);
+                Program header = new Program();
+                header.setConfig(program.getConfig());
+                header.setLoadConfig(program.getLoadConfig());
+                program.getVariables().forEach(header::addVariable);
+                if (onHeader != null) {
+                    onHeader.accept(header);
+                }
+                program.getTests().forEach(onTest);
+                return header;
+            }
+            Lexer lexer = new Lexer(reader);
+            if (recursiveDescent) {
+                RecursiveDescentParser parser = new RecursiveDescentParser(lexer);
+                parser.setHeaderConsumer(onHeader);
+                parser.setTestConsumer(onTest);
+                return parser.parse();
+            }
             parser parser = new parser(lexer);
+            parser.setHeaderConsumer(onHeader);
+            parser.setTestConsumer(onTest);
 
             Symbol result = parser.parse();
             return (Program) result.value;
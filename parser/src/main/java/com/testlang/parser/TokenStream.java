@@ -0,0 +1,239 @@
+package com.testlang.parser;
+
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * The tokens of a source held in parallel int arrays (kind, start offset, length, line and
+ * column) over one shared copy of the source, instead of a Symbol with a boxed value per
+ * token. Values are decoded only when asked for, so tools that scan large files for token
+ * kinds and positions make almost no garbage. Kinds are the constants of sym.
+ *
+ * Literal values are not checked while tokenizing: a duration too large for a long is only
+ * reported when its value is read.
+ */
+public final class TokenStream {
+    private final char[] source;
+    private final int sourceLength;
+    private final CharBuffer view;
+    private final StringBuilder scratch = new StringBuilder();
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    private int size;
+
+    private TokenStream(char[] source, int sourceLength) {
+        this.source = source;
+        this.sourceLength = sourceLength;
+        this.view = CharBuffer.wrap(source, 0, sourceLength);
+        // Typical programs have about one token per eight chars
+        int capacity = Math.max(16, sourceLength / 8);
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+    }
+
+    /**
+     * Reads a whole source and tokenizes it
+     */
+    public static TokenStream tokenize(Reader reader) throws IOException, LexerException {
+        CharArrayWriter text = new CharArrayWriter();
+        reader.transferTo(text);
+        char[] source = text.toCharArray();
+        return tokenize(source, source.length);
+    }
+
+    /**
+     * Tokenizes the first length chars of source, which the stream keeps and shares
+     */
+    public static TokenStream tokenize(char[] source, int length) throws IOException, LexerException {
+        TokenStream tokens = new TokenStream(source, length);
+        Lexer lexer = new Lexer(new CharArrayReader(source, 0, length));
+        lexer.recordInto(tokens);
+        while (lexer.next_token().sym != sym.EOF) {
+            // Each token was recorded into the arrays
+        }
+        return tokens;
+    }
+
+    void add(int kind, int start, int length, int line, int column) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    /** Number of tokens, not counting the end of input */
+    public int size() {
+        return size;
+    }
+
+    public int kind(int index) {
+        return kinds[checkIndex(index)];
+    }
+
+    /** Offset of the token's first char in the source */
+    public int start(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    public int length(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    /** 1-based line of the token */
+    public int line(int index) {
+        return lines[checkIndex(index)];
+    }
+
+    /** 1-based column of the token */
+    public int column(int index) {
+        return columns[checkIndex(index)];
+    }
+
+    /**
+     * The source the offsets refer to. The array is shared, not copied, and must not be
+     * changed; only its first getSourceLength() chars are source.
+     */
+    public char[] getSource() {
+        return source;
+    }
+
+    public int getSourceLength() {
+        return sourceLength;
+    }
+
+    /** The token's text as written, e.g. with the quotes and escapes of a string */
+    public CharSequence text(int index) {
+        int start = start(index);
+        return view.subSequence(start, start + lengths[index]);
+    }
+
+    /**
+     * The value the lexer would give the token: a String for identifiers and strings, an
+     * Integer for numbers, a Long in milliseconds for durations and a Double for rates and
+     * percentiles. Other tokens have no value.
+     */
+    public Object value(int index) throws LexerException {
+        int start = start(index);
+        try {
+            return decode(kinds[index], source, start, lengths[index], scratch);
+        } catch (ArithmeticException | NumberFormatException e) {
+            if (kinds[index] != sym.DURATION) {
+                throw e;
+            }
+            // Reported as the lexer reports it
+            throw new LexerException("Duration is too large", lines[index], columns[index],
+                new String(source, start, lengths[index]));
+        }
+    }
+
+    /**
+     * The value of a NUMBER token, without boxing it
+     */
+    public int intValue(int index) {
+        if (kind(index) != sym.NUMBER) {
+            throw new IllegalArgumentException("Token " + index + " is not a number");
+        }
+        return Integer.parseInt(view, starts[index], starts[index] + lengths[index], 10);
+    }
+
+    /**
+     * Replays the tokens as Symbols, creating each one only when the parser asks for it, so
+     * the CUP parser can run over the stream
+     */
+    public Scanner scanner() {
+        return new Scanner() {
+            private int next;
+
+            @Override
+            public Symbol next_token() throws LexerException {
+                if (next == size) {
+                    return new Symbol(sym.EOF);
+                }
+                int index = next++;
+                return new Symbol(kinds[index], lines[index], columns[index], value(index));
+            }
+        };
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+        }
+        return index;
+    }
+
+    /**
+     * Decodes the value of a token from its text, for both the lexer and the stream. Throws
+     * ArithmeticException or NumberFormatException for a number or duration out of range.
+     */
+    static Object decode(int kind, char[] chars, int start, int length, StringBuilder scratch) {
+        switch (kind) {
+            case sym.IDENTIFIER:
+                return new String(chars, start, length);
+            case sym.STRING:
+                return unescape(chars, start + 1, start + length - 1, scratch);
+            case sym.NUMBER:
+                return Integer.parseInt(new String(chars, start, length));
+            case sym.DURATION:
+                // Carried in milliseconds
+                if (chars[start + length - 2] == 'm') {
+                    return Long.parseLong(new String(chars, start, length - 2));
+                }
+                return Math.multiplyExact(Long.parseLong(new String(chars, start, length - 1)), 1000L);
+            case sym.RATE:
+                // Carried per second
+                double count = Double.parseDouble(new String(chars, start, length - 2));
+                return chars[start + length - 1] == 'm' ? count / 60 : count;
+            case sym.PERCENTILE:
+                return Double.parseDouble(new String(chars, start + 1, length - 1));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the contents of a string literal between start and end in one pass. Contents
+     * without escapes are copied once, straight from the chars.
+     */
+    private static String unescape(char[] chars, int start, int end, StringBuilder scratch) {
+        int i = start;
+        while (i < end && chars[i] != '\\') {
+            i++;
+        }
+        if (i == end) {
+            return new String(chars, start, end - start);
+        }
+
+        // The lexer only allows \" and \\, so an escape is always the backslash and one char
+        scratch.setLength(0);
+        scratch.append(chars, start, i - start);
+        while (i < end) {
+            char c = chars[i++];
+            scratch.append(c == '\\' ? chars[i++] : c);
+        }
+        return scratch.toString();
+    }
+}
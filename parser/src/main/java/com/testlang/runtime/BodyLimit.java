@@ -0,0 +1,82 @@
+package com.testlang.runtime;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Caps how much of a response body another body handler may receive, so an endpoint that
+ * returns far more than expected fails its test instead of filling the heap
+ */
+public final class BodyLimit {
+
+    private BodyLimit() {
+    }
+
+    /**
+     * Wraps a body handler so that a body larger than maxBytes is cancelled and the request
+     * fails with an IOException
+     */
+    public static <T> HttpResponse.BodyHandler<T> limit(HttpResponse.BodyHandler<T> handler, long maxBytes) {
+        return info -> new LimitedSubscriber<>(handler.apply(info), maxBytes);
+    }
+
+    private static class LimitedSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> downstream;
+        private final long maxBytes;
+        private Flow.Subscription subscription;
+        private long received;
+        private boolean exceeded;
+
+        LimitedSubscriber(HttpResponse.BodySubscriber<T> downstream, long maxBytes) {
+            this.downstream = downstream;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return downstream.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> chunks) {
+            if (exceeded) {
+                return;
+            }
+            for (ByteBuffer chunk : chunks) {
+                received += chunk.remaining();
+            }
+            if (received > maxBytes) {
+                exceeded = true;
+                subscription.cancel();
+                downstream.onError(new IOException("Response body is larger than max_body_size ("
+                    + maxBytes + " bytes)"));
+                return;
+            }
+            downstream.onNext(chunks);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!exceeded) {
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!exceeded) {
+                downstream.onComplete();
+            }
+        }
+    }
+}
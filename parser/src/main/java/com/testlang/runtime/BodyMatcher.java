@@ -0,0 +1,306 @@
+package com.testlang.runtime;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Finds several substrings in a response body in one pass over its UTF-8 bytes, using an
+ * Aho-Corasick automaton. Generated tests build one matcher per request, for all of the
+ * body assertions that follow it, so k assertions cost one scan instead of k scans and the
+ * body is never decoded. A matcher is immutable and can be shared between threads.
+ *
+ * The body handler searches the body as it arrives and completes once every needle has
+ * been found, so a large or slow response need not be received or held in memory.
+ *
+ * Transitions are indexed by byte class rather than byte: bytes that occur in no needle
+ * all lead back to the start, so they share class 0, and every other byte value has a class
+ * of its own. A table row is as wide as the number of distinct needle bytes plus one,
+ * instead of 256.
+ */
+public class BodyMatcher {
+    /**
+     * Largest rest of a body that is still read and discarded after every needle is found.
+     * Cancelling an HTTP/1.1 body closes its connection, so a small remainder is cheaper to
+     * drain than the next request's connect.
+     */
+    static final long DRAIN_LIMIT = 64 * 1024;
+
+    private final String[] needles;
+    private final int[] classes;      // Class of each byte value
+    private final int width;          // Number of classes
+    private final int[] transitions;  // Next state, indexed by state * width + class
+    private final int[][] outputs;    // Needles that end in each state, or null
+
+    public BodyMatcher(String... needles) {
+        this.needles = needles.clone();
+
+        byte[][] encoded = new byte[needles.length][];
+        classes = new int[256];
+        int count = 1;
+        for (int i = 0; i < needles.length; i++) {
+            encoded[i] = needles[i].getBytes(StandardCharsets.UTF_8);
+            for (byte b : encoded[i]) {
+                if (classes[b & 0xFF] == 0) {
+                    classes[b & 0xFF] = count++;
+                }
+            }
+        }
+        width = count;
+
+        // Trie of the needles, with -1 for missing edges
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(newState());
+        ends.add(new ArrayList<>());
+        for (int i = 0; i < encoded.length; i++) {
+            int state = 0;
+            for (byte b : encoded[i]) {
+                int c = classes[b & 0xFF];
+                int next = trie.get(state)[c];
+                if (next < 0) {
+                    next = trie.size();
+                    trie.get(state)[c] = next;
+                    trie.add(newState());
+                    ends.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            ends.get(state).add(i);
+        }
+
+        // Breadth-first, each state's failure link is a shorter state, so its missing edges and
+        // outputs are already final and can be copied
+        int states = trie.size();
+        transitions = new int[states * width];
+        outputs = new int[states][];
+        int[] failure = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < width; c++) {
+            int next = trie.get(0)[c];
+            transitions[c] = Math.max(next, 0);
+            if (next > 0) {
+                queue.add(next);
+            }
+        }
+        outputs[0] = toArray(ends.get(0), null);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = toArray(ends.get(state), outputs[failure[state]]);
+            for (int c = 0; c < width; c++) {
+                int next = trie.get(state)[c];
+                int fallback = transitions[failure[state] * width + c];
+                if (next < 0) {
+                    transitions[state * width + c] = fallback;
+                } else {
+                    transitions[state * width + c] = next;
+                    failure[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private int[] newState() {
+        int[] edges = new int[width];
+        Arrays.fill(edges, -1);
+        return edges;
+    }
+
+    private static int[] toArray(List<Integer> own, int[] inherited) {
+        if (own.isEmpty()) {
+            return inherited;
+        }
+        int extra = inherited != null ? inherited.length : 0;
+        int[] result = new int[own.size() + extra];
+        for (int i = 0; i < own.size(); i++) {
+            result[i] = own.get(i);
+        }
+        if (inherited != null) {
+            System.arraycopy(inherited, 0, result, own.size(), extra);
+        }
+        return result;
+    }
+
+    public String[] getNeedles() {
+        return needles.clone();
+    }
+
+    /**
+     * Returns which needles occur in the body, in the order they were given
+     */
+    public boolean[] match(byte[] body) {
+        Scan scan = newScan();
+        scan.update(body, 0, body.length);
+        return scan.getFound();
+    }
+
+    /**
+     * Returns the results of a response read with bodyHandler, or matches the body of one
+     * read with BodyHandlers.ofByteArray
+     */
+    public boolean[] match(HttpResponse<?> response) {
+        Object body = response.body();
+        return body instanceof boolean[] ? ((boolean[]) body).clone() : match((byte[]) body);
+    }
+
+    /**
+     * Returns a body handler whose body is the match results. The response is scanned chunk
+     * by chunk, and the results are complete as soon as every needle has been found. The rest
+     * is then discarded as it arrives when the body has a Content-Length of at most
+     * DRAIN_LIMIT, so the connection can be reused; otherwise it is cancelled.
+     */
+    public HttpResponse.BodyHandler<boolean[]> bodyHandler() {
+        return info -> {
+            long length = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+            return new ScanSubscriber(newScan(), length >= 0 && length <= DRAIN_LIMIT);
+        };
+    }
+
+    /**
+     * Starts a scan that is fed the body a piece at a time
+     */
+    public Scan newScan() {
+        return new Scan();
+    }
+
+    /**
+     * Position of the automaton in one body. Needles split between two pieces are still
+     * found, because the state carries over from one update to the next.
+     */
+    public class Scan {
+        private final boolean[] found = new boolean[needles.length];
+        private int remaining = needles.length;
+        private int state;
+
+        Scan() {
+            mark(outputs[0]);  // Empty needles match before any input
+        }
+
+        /**
+         * Scans the remaining bytes of a buffer, leaving its position at the end
+         */
+        public void update(ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                int s = state;
+                while (buffer.hasRemaining() && remaining > 0) {
+                    s = transitions[s * width + classes[buffer.get() & 0xFF]];
+                    if (outputs[s] != null) {
+                        mark(outputs[s]);
+                    }
+                }
+                state = s;
+            }
+            buffer.position(buffer.limit());
+        }
+
+        public void update(byte[] bytes, int offset, int length) {
+            int s = state;
+            for (int i = offset, end = offset + length; i < end && remaining > 0; i++) {
+                s = transitions[s * width + classes[bytes[i] & 0xFF]];
+                if (outputs[s] != null) {
+                    mark(outputs[s]);
+                }
+            }
+            state = s;
+        }
+
+        private void mark(int[] matched) {
+            if (matched == null) {
+                return;
+            }
+            for (int needle : matched) {
+                if (!found[needle]) {
+                    found[needle] = true;
+                    remaining--;
+                }
+            }
+        }
+
+        /** True once every needle has been found, so the rest of the body need not be read */
+        public boolean isComplete() {
+            return remaining == 0;
+        }
+
+        public boolean[] getFound() {
+            return found.clone();
+        }
+    }
+
+    /**
+     * Feeds each chunk of a response into a scan, one chunk at a time
+     */
+    private static class ScanSubscriber implements HttpResponse.BodySubscriber<boolean[]> {
+        private final Scan scan;
+        private final boolean drain;
+        private final CompletableFuture<boolean[]> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private boolean draining;
+
+        ScanSubscriber(Scan scan, boolean drain) {
+            this.scan = scan;
+            this.drain = drain;
+        }
+
+        @Override
+        public CompletionStage<boolean[]> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (scan.isComplete()) {
+                finishEarly();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> chunks) {
+            if (draining) {
+                return;
+            }
+            for (ByteBuffer chunk : chunks) {
+                scan.update(chunk);
+            }
+            if (scan.isComplete()) {
+                finishEarly();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        private void finishEarly() {
+            // Nothing left to look for, so the test can go on while the rest is skipped
+            result.complete(scan.getFound());
+            if (drain) {
+                draining = true;
+                subscription.request(Long.MAX_VALUE);
+            } else {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(scan.getFound());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.testlang.runtime;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the HttpClient of a generated test class, chosen by the executor config
+ * option. Their threads never keep the JVM alive after the tests finish.
+ */
+public final class ClientExecutors {
+
+    private ClientExecutors() {
+    }
+
+    /**
+     * A fixed pool of daemon threads, for bounding how much work the client does at once
+     */
+    public static ExecutorService fixed(int threads) {
+        return Executors.newFixedThreadPool(threads, daemonThreads("testlang-client-"));
+    }
+
+    /**
+     * A new virtual thread per task on JDK 21+, otherwise a cached pool of daemon threads
+     */
+    public static ExecutorService virtual() {
+        return threadPerTask("testlang-client-");
+    }
+
+    /**
+     * An executor that starts a new virtual thread for each task on JDK 21+. Virtual threads
+     * are cheap to create, so they are never pooled. Older JVMs get a cached pool of daemon
+     * threads instead.
+     */
+    static ExecutorService threadPerTask(String prefix) {
+        try {
+            ThreadFactory factory = virtualThreads();
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(daemonThreads(prefix));
+        }
+    }
+
+    /**
+     * Virtual threads when the JVM has them (JDK 21+), otherwise daemon platform threads
+     */
+    static ThreadFactory virtualOrDaemonThreads(String prefix) {
+        try {
+            return virtualThreads();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return daemonThreads(prefix);
+        }
+    }
+
+    /**
+     * Looked up reflectively because the runtime is compiled for JDK 17
+     */
+    private static ThreadFactory virtualThreads() throws ReflectiveOperationException {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.testlang.runtime;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Warms up the HttpClient of a generated test class before its first test, so that the
+ * first request does not pay for DNS, connecting and loading the client's classes and its
+ * timing reflects steady state
+ */
+public final class ClientWarmup {
+
+    private ClientWarmup() {
+    }
+
+    /**
+     * Sends HEAD requests to the base URL at the same time, so the client opens up to that
+     * many connections and keeps them for reuse. Their responses and failures are ignored;
+     * a server that cannot be reached fails the tests themselves.
+     */
+    public static void warmUp(HttpClient client, String baseUrl, int requests, Duration timeout) {
+        HttpRequest head = HttpRequest.newBuilder(URI.create(baseUrl))
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .timeout(timeout)
+            .build();
+        CompletableFuture<?>[] sent = new CompletableFuture<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            sent[i] = client.sendAsync(head, HttpResponse.BodyHandlers.discarding());
+        }
+        try {
+            CompletableFuture.allOf(sent).join();
+        } catch (RuntimeException e) {
+            // Only the connections matter
+        }
+    }
+}
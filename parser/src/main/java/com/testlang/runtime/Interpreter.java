@@ -0,0 +1,249 @@
+package com.testlang.runtime;
+
+import com.testlang.ast.*;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the AST directly against the HTTP API, without generating and compiling Java code.
+ * Requests and assertions follow the same semantics as the code emitted by CodeGenerator.
+ */
+public class Interpreter {
+    private final Program program;
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Map<String, String> variables;
+
+    public Interpreter(Program program) {
+        this.program = program;
+        this.client = buildClient(program.getConfig());
+        this.variables = new HashMap<>();
+
+        String base = "http://localhost:8080";
+        if (program.getConfig() != null && program.getConfig().getBaseUrl() != null) {
+            base = program.getConfig().getBaseUrl();
+        }
+        this.baseUrl = base;
+        if (program.getConfig() != null && program.getConfig().getWarmupRequests() != null) {
+            ClientWarmup.warmUp(client, baseUrl, program.getConfig().getWarmupRequests(), requestTimeout());
+        }
+
+        for (Variable var : program.getVariables()) {
+            variables.put(var.getName(), var.getValueAsString());
+        }
+    }
+
+    /**
+     * Builds the client with the same transport options as the generated setup method
+     */
+    private static HttpClient buildClient(Config config) {
+        HttpClient.Builder builder = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5));
+        if (config == null) {
+            return builder.build();
+        }
+        if (config.getConnectTimeoutMillis() != null) {
+            builder.connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()));
+        }
+        if (config.getHttpVersion() != null) {
+            builder.version(HttpClient.Version.valueOf(config.getHttpVersion()));
+        }
+        if (config.getRedirects() != null) {
+            builder.followRedirects(HttpClient.Redirect.valueOf(config.getRedirects()));
+        }
+        if (config.getExecutorThreads() != null) {
+            builder.executor(ClientExecutors.fixed(config.getExecutorThreads()));
+        } else if (config.isVirtualThreads()) {
+            builder.executor(ClientExecutors.virtual());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Runs every test in source order and returns their results
+     */
+    public List<TestResult> run() {
+        List<TestResult> results = new ArrayList<>();
+        for (Test test : program.getTests()) {
+            results.add(runTest(test));
+        }
+        return results;
+    }
+
+    public TestResult runTest(Test test) {
+        long start = System.nanoTime();
+        try {
+            HttpRequest request = null;
+            HttpResponse.BodyHandler<String> handler = null;
+            HttpResponse<String> resp = null;
+            long elapsedNanos = 0;
+            List<Statement> statements = test.getStatements();
+            for (int i = 0; i < statements.size(); i++) {
+                Statement stmt = statements.get(i);
+                if (stmt instanceof Request) {
+                    // Built per run rather than cached, so memory does not grow with the number
+                    // of tests; percentile assertions resend this one
+                    request = buildRequest((Request) stmt);
+                    handler = bodyHandler(statements, i);
+                    long sent = System.nanoTime();
+                    resp = client.send(request, handler);
+                    elapsedNanos = System.nanoTime() - sent;
+                } else if (stmt instanceof Assertion) {
+                    if (resp == null) {
+                        throw new AssertionError("assertion before any request");
+                    }
+                    Assertion assertion = (Assertion) stmt;
+                    if (assertion.getType() == Assertion.Type.PERCENTILE_BELOW) {
+                        checkPercentile(assertion, request, handler);
+                    } else {
+                        checkAssertion(assertion, resp, elapsedNanos);
+                    }
+                }
+            }
+            return TestResult.passed(test.getName(), System.nanoTime() - start);
+        } catch (AssertionError e) {
+            return TestResult.failed(test.getName(), e.getMessage(), System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TestResult.failed(test.getName(), "interrupted", System.nanoTime() - start);
+        } catch (Exception e) {
+            return TestResult.failed(test.getName(), e.toString(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads the body only when an assertion before the next request looks at it, as the
+     * generated code does, and within the configured max_body_size
+     */
+    private HttpResponse.BodyHandler<String> bodyHandler(List<Statement> statements, int request) {
+        for (int i = request + 1; i < statements.size() && !(statements.get(i) instanceof Request); i++) {
+            if (((Assertion) statements.get(i)).getType() == Assertion.Type.BODY_CONTAINS) {
+                HttpResponse.BodyHandler<String> handler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
+                Long maxBodySize = program.getConfig() != null ? program.getConfig().getMaxBodySize() : null;
+                return maxBodySize != null ? BodyLimit.limit(handler, maxBodySize) : handler;
+            }
+        }
+        return HttpResponse.BodyHandlers.replacing(null);
+    }
+
+    private Duration requestTimeout() {
+        Long timeout = program.getConfig() != null ? program.getConfig().getRequestTimeoutMillis() : null;
+        return timeout != null ? Duration.ofMillis(timeout) : Duration.ofSeconds(10);
+    }
+
+    HttpRequest buildRequest(Request request) {
+        String url = request.getUrlTemplate().render(variables);
+        String fullUrl = url.startsWith("/") ? baseUrl + url : url;
+
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(fullUrl))
+            .timeout(requestTimeout());
+
+        switch (request.getMethod()) {
+            case "GET":
+                b.GET();
+                break;
+            case "DELETE":
+                b.DELETE();
+                break;
+            case "POST":
+                b.POST(bodyPublisher(request));
+                break;
+            case "PUT":
+                b.PUT(bodyPublisher(request));
+                break;
+        }
+
+        for (Header header : request.resolveHeaders(program.getConfig())) {
+            b.header(header.getKey(), header.getValue());
+        }
+
+        return b.build();
+    }
+
+    private HttpRequest.BodyPublisher bodyPublisher(Request request) {
+        if (request.getBody() == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        return HttpRequest.BodyPublishers.ofString(request.getBodyTemplate().render(variables));
+    }
+
+    private void checkAssertion(Assertion assertion, HttpResponse<String> resp, long elapsedNanos) {
+        String key = assertion.getKey() != null ? substituteVariables(assertion.getKey()) : null;
+        String value = assertion.getValue() != null ? substituteVariables(assertion.getValue()) : null;
+
+        switch (assertion.getType()) {
+            case STATUS_EQUALS:
+                if (assertion.getStatusCode() != resp.statusCode()) {
+                    throw new AssertionError("expected status <" + assertion.getStatusCode()
+                        + "> but was <" + resp.statusCode() + ">");
+                }
+                break;
+
+            case HEADER_EQUALS: {
+                String actual = resp.headers().firstValue(key).orElse("");
+                if (!value.equals(actual)) {
+                    throw new AssertionError("expected header '" + key + "' <" + value
+                        + "> but was <" + actual + ">");
+                }
+                break;
+            }
+
+            case HEADER_CONTAINS: {
+                String actual = resp.headers().firstValue(key).orElse("");
+                if (!actual.contains(value)) {
+                    throw new AssertionError("expected header '" + key + "' to contain <" + value
+                        + "> but was <" + actual + ">");
+                }
+                break;
+            }
+
+            case BODY_CONTAINS:
+                if (!resp.body().contains(value)) {
+                    throw new AssertionError("expected body to contain <" + value + ">");
+                }
+                break;
+
+            case RESPONSE_TIME_BELOW:
+                if (elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(assertion.getTimeLimitMillis())) {
+                    throw new AssertionError("expected response time below <" + assertion.getTimeLimitMillis()
+                        + " ms> but was <" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms>");
+                }
+                break;
+        }
+    }
+
+    /**
+     * Sends the request again for the warmup and measured runs, then checks the percentile
+     * of the measured ones
+     */
+    private void checkPercentile(Assertion assertion, HttpRequest request, HttpResponse.BodyHandler<String> handler)
+            throws IOException, InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int runs = assertion.getRuns();
+        for (int run = -(runs / 10); run < runs; run++) {
+            long sent = System.nanoTime();
+            client.send(request, handler);
+            if (run >= 0) {
+                histogram.record(System.nanoTime() - sent);
+            }
+        }
+
+        long actual = histogram.getValueAtPercentile(assertion.getPercentile());
+        if (actual >= TimeUnit.MILLISECONDS.toNanos(assertion.getTimeLimitMillis())) {
+            String percentile = assertion.getPercentile() == Math.rint(assertion.getPercentile())
+                ? String.valueOf(assertion.getPercentile().longValue()) : String.valueOf(assertion.getPercentile());
+            throw new AssertionError("expected p" + percentile + " below <" + assertion.getTimeLimitMillis()
+                + " ms> over " + runs + " runs but was <" + TimeUnit.NANOSECONDS.toMillis(actual) + " ms>");
+        }
+    }
+
+    private String substituteVariables(String text) {
+        return Template.parse(text).render(variables);
+    }
+}
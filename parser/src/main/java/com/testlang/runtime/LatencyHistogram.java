@@ -0,0 +1,144 @@
+package com.testlang.runtime;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size latency histogram with logarithmic buckets, in the style of HdrHistogram.
+ * Values are kept at microsecond resolution with about 1.6% relative precision, up to
+ * 71 minutes. The buckets (about 14 KB) are allocated by the first measurement, so a
+ * histogram that is never recorded into costs almost nothing. After that, recording only
+ * updates counters, so it can be called from many threads on the measured path without
+ * allocating.
+ */
+public class LatencyHistogram {
+    // Each power of two above 128 us is split into 64 linear sub-buckets
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final long HIGHEST_MICROS = (1L << 32) - 1;
+    private static final int BUCKETS = index(HIGHEST_MICROS) + 1;
+
+    private volatile AtomicLongArray counts; // Null until the first measurement
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one measurement. Longer values than the histogram covers count in its last bucket,
+     * but the max is always exact.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        buckets().incrementAndGet(index(Math.min(nanos / 1000, HIGHEST_MICROS)));
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // Another thread raised the max; compare again
+        }
+    }
+
+    /**
+     * Adds every measurement of another histogram to this one
+     */
+    public void add(LatencyHistogram other) {
+        AtomicLongArray otherCounts = other.counts;
+        if (otherCounts == null) {
+            return;
+        }
+        AtomicLongArray counts = buckets();
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = otherCounts.get(i);
+            if (n != 0) {
+                counts.addAndGet(i, n);
+            }
+        }
+        totalNanos.addAndGet(other.totalNanos.get());
+        long max;
+        long otherMax = other.maxNanos.get();
+        while (otherMax > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, otherMax)) {
+            // Another thread raised the max; compare again
+        }
+    }
+
+    public long getCount() {
+        AtomicLongArray counts = this.counts;
+        if (counts == null) {
+            return 0;
+        }
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.get() / (double) count;
+    }
+
+    /**
+     * Returns the value that the given percentage of measurements are at or below, rounded up
+     * to the top of its bucket, or 0 when nothing was recorded
+     *
+     * @param percentile between 0 and 100, e.g. 99.9
+     */
+    public long getValueAtPercentile(double percentile) {
+        AtomicLongArray counts = this.counts;
+        if (counts == null) {
+            return 0;
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestMicros(i) * 1000 + 999, maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    private AtomicLongArray buckets() {
+        AtomicLongArray buckets = counts;
+        if (buckets == null) {
+            synchronized (this) {
+                buckets = counts;
+                if (buckets == null) {
+                    counts = buckets = new AtomicLongArray(BUCKETS);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Values below 128 get a bucket each. Above that, the top bits of the value pick the
+     * power of two and the next six bits the sub-bucket, so bucket width grows with the value.
+     */
+    static int index(long micros) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (micros >>> shift);
+    }
+
+    /**
+     * Largest value that falls in a bucket; the inverse of index
+     */
+    static long highestMicros(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,108 @@
+package com.testlang.runtime;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency histograms for the requests of generated test classes, keyed by class, test and
+ * request line. Generated classes look their histograms up once into static fields, so a
+ * request only records into one; a histogram allocates its buckets on the first record.
+ * When a class's tests finish, every histogram is written to a JSON report.
+ */
+public final class LatencyRecorder {
+    /** System property naming the report file */
+    public static final String REPORT_PROPERTY = "testlang.latency.report";
+    public static final String DEFAULT_REPORT = "latency-report.json";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final Map<String, Map<String, Map<String, LatencyHistogram>>> histograms = new LinkedHashMap<>();
+
+    private LatencyRecorder() {
+    }
+
+    /**
+     * Returns the histogram for a request of a test, creating it on first use
+     *
+     * @param request the request line, e.g. "GET /api/users/42"
+     */
+    public static synchronized LatencyHistogram histogram(String className, String test, String request) {
+        return histograms.computeIfAbsent(className, c -> new LinkedHashMap<>())
+            .computeIfAbsent(test, t -> new LinkedHashMap<>())
+            .computeIfAbsent(request, r -> new LatencyHistogram());
+    }
+
+    /**
+     * Writes the report to the file named by the testlang.latency.report system property,
+     * or latency-report.json in the working directory
+     */
+    public static void writeReport() throws IOException {
+        writeReport(Paths.get(System.getProperty(REPORT_PROPERTY, DEFAULT_REPORT)));
+    }
+
+    public static void writeReport(Path file) throws IOException {
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Renders every histogram as JSON. Each test has its own percentiles over all of its
+     * requests, followed by those of each request. Times are in milliseconds.
+     */
+    public static synchronized String toJson() {
+        List<String> tests = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Map<String, LatencyHistogram>>> classEntry : histograms.entrySet()) {
+            for (Map.Entry<String, Map<String, LatencyHistogram>> testEntry : classEntry.getValue().entrySet()) {
+                LatencyHistogram all = new LatencyHistogram();
+                List<String> requests = new ArrayList<>();
+                for (Map.Entry<String, LatencyHistogram> request : testEntry.getValue().entrySet()) {
+                    all.add(request.getValue());
+                    requests.add("        {\"request\": " + quote(request.getKey()) + ", "
+                        + stats(request.getValue()) + "}");
+                }
+
+                tests.add("    {\"class\": " + quote(classEntry.getKey())
+                    + ", \"test\": " + quote(testEntry.getKey()) + ", " + stats(all)
+                    + ",\n      \"requests\": [\n" + String.join(",\n", requests) + "\n      ]}");
+            }
+        }
+        return "{\n  \"unit\": \"ms\",\n  \"tests\": [\n" + String.join(",\n", tests) + "\n  ]\n}\n";
+    }
+
+    private static String stats(LatencyHistogram histogram) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\"count\": ").append(histogram.getCount());
+        sb.append(", \"mean\": ").append(millis(histogram.getMeanNanos()));
+        for (double percentile : PERCENTILES) {
+            String name = percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile);
+            sb.append(", \"p").append(name).append("\": ").append(millis(histogram.getValueAtPercentile(percentile)));
+        }
+        sb.append(", \"max\": ").append(millis(histogram.getMaxNanos()));
+        return sb.toString();
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000);
+    }
+
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
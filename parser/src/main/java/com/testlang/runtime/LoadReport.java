@@ -0,0 +1,134 @@
+package com.testlang.runtime;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts test iterations and failures during a load run, with a latency histogram per test.
+ * Recording is safe from any number of user threads at once.
+ */
+public class LoadReport {
+    // Messages that embed measured values are all distinct, so only the first few are kept apart
+    private static final int MAX_DISTINCT_ERRORS = 20;
+    private static final String OTHER_ERRORS = "(other errors)";
+
+    private final Map<String, TestStats> tests = new LinkedHashMap<>();
+    private long elapsedNanos;
+
+    /**
+     * Iteration counts and latencies for one test. In the open model the latencies are
+     * measured from each test's intended start, so their tail shows the queueing a stalled
+     * server causes.
+     */
+    public static class TestStats {
+        private final LongAdder iterations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void record(long nanos, String error) {
+            iterations.increment();
+            latency.record(nanos);
+            if (error != null) {
+                failures.increment();
+                String key = errors.size() < MAX_DISTINCT_ERRORS || errors.containsKey(error) ? error : OTHER_ERRORS;
+                errors.computeIfAbsent(key, e -> new LongAdder()).increment();
+            }
+        }
+
+        public long getIterations() {
+            return iterations.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public double getMeanMillis() {
+            return latency.getMeanNanos() / 1_000_000;
+        }
+
+        public double getMaxMillis() {
+            return latency.getMaxNanos() / 1_000_000.0;
+        }
+
+        /**
+         * @param percentile between 0 and 100, e.g. 99.9
+         */
+        public double getPercentileMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+
+        /** Failure messages with how often each occurred */
+        public Map<String, Long> getErrors() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            errors.forEach((message, count) -> counts.put(message, count.sum()));
+            return counts;
+        }
+    }
+
+    /**
+     * Registers a test before the run starts, so the report keeps the test order
+     */
+    TestStats add(String name) {
+        TestStats stats = new TestStats();
+        tests.put(name, stats);
+        return stats;
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Map<String, TestStats> getTests() {
+        return Collections.unmodifiableMap(tests);
+    }
+
+    public long getIterations() {
+        long total = 0;
+        for (TestStats stats : tests.values()) {
+            total += stats.getIterations();
+        }
+        return total;
+    }
+
+    public long getFailures() {
+        long total = 0;
+        for (TestStats stats : tests.values()) {
+            total += stats.getFailures();
+        }
+        return total;
+    }
+
+    /** Test iterations completed per second of the run */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getIterations() / (elapsedNanos / 1e9);
+    }
+
+    public double getErrorRate() {
+        long iterations = getIterations();
+        return iterations == 0 ? 0 : getFailures() / (double) iterations;
+    }
+
+    public void print(PrintStream out) {
+        out.println("\n===== LOAD RESULTS =====");
+        for (Map.Entry<String, TestStats> entry : tests.entrySet()) {
+            TestStats stats = entry.getValue();
+            out.printf("%-24s %8d runs  %6d failed  %8.2f ms mean  %8.2f ms p50  %8.2f ms p99  %8.2f ms p99.9"
+                    + "  %8.2f ms max%n", entry.getKey(), stats.getIterations(), stats.getFailures(),
+                stats.getMeanMillis(), stats.getPercentileMillis(50), stats.getPercentileMillis(99),
+                stats.getPercentileMillis(99.9), stats.getMaxMillis());
+            for (Map.Entry<String, Long> error : stats.getErrors().entrySet()) {
+                out.printf("    %6d x %s%n", error.getValue(), error.getKey());
+            }
+        }
+        out.printf("Duration:   %.1f s%n", elapsedNanos / 1e9);
+        out.printf("Throughput: %.1f tests/s%n", getThroughput());
+        out.printf("Errors:     %d of %d (%.2f%%)%n", getFailures(), getIterations(), getErrorRate() * 100);
+        out.println("========================\n");
+    }
+}
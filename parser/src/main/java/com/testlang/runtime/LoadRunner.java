@@ -0,0 +1,159 @@
+package com.testlang.runtime;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load driver for a generated test class. All tests share the class's static HttpClient,
+ * and failed assertions count as errors.
+ *
+ * run is the closed model: each virtual user runs the test_* methods back to back, in
+ * order, until the duration is up. runAtRate is the open model: tests start on a fixed
+ * schedule whether or not earlier ones have finished, so a stalled server cannot slow
+ * the clients down and hide its own latency.
+ */
+public class LoadRunner {
+    private final TestRunner runner;
+
+    public LoadRunner(Class<?> testClass) throws ReflectiveOperationException {
+        this.runner = new TestRunner(testClass);
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length < 3) {
+            System.err.println("Usage: java com.testlang.runtime.LoadRunner <TestClass> <users> <seconds>");
+            System.exit(1);
+        }
+
+        Class<?> testClass = Class.forName(args[0]);
+        LoadReport report = new LoadRunner(testClass)
+            .run(Integer.parseInt(args[1]), Duration.ofSeconds(Long.parseLong(args[2])), System.out);
+        if (report.getFailures() > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs setup, the load and teardown, then prints the report
+     */
+    public LoadReport run(int users, Duration duration, PrintStream out) throws Throwable {
+        Map<String, MethodHandle> handles = runner.findTests();
+        LoadReport report = new LoadReport();
+        List<MethodHandle> tests = new ArrayList<>();
+        List<LoadReport.TestStats> stats = new ArrayList<>();
+        for (Map.Entry<String, MethodHandle> test : handles.entrySet()) {
+            tests.add(test.getValue());
+            stats.add(report.add(test.getKey()));
+        }
+
+        out.println("\n===== RUNNING LOAD: " + users + " users for " + duration.toSeconds() + " s =====\n");
+        try {
+            runner.invokeStatic(BeforeAll.class);
+
+            long start = System.nanoTime();
+            long deadline = start + duration.toNanos();
+            ThreadFactory factory = ClientExecutors.virtualOrDaemonThreads("testlang-user-");
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                Thread thread = factory.newThread(() -> runUser(tests, stats, deadline));
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            report.finish(System.nanoTime() - start);
+        } finally {
+            runner.invokeStatic(AfterAll.class);
+        }
+
+        report.print(out);
+        return report;
+    }
+
+    /**
+     * Starts tests in turn at a constant arrival rate for the duration, then waits for the
+     * last ones to finish. Each test's time is measured from when it was scheduled to
+     * start, not from when it actually started, so scheduling delays caused by a slow
+     * system show up as latency instead of being omitted. These corrected times feed each
+     * test's histogram, so the reported p99 and p99.9 include them.
+     */
+    public LoadReport runAtRate(double perSecond, Duration duration, PrintStream out) throws Throwable {
+        Map<String, MethodHandle> handles = runner.findTests();
+        LoadReport report = new LoadReport();
+        List<MethodHandle> tests = new ArrayList<>();
+        List<LoadReport.TestStats> stats = new ArrayList<>();
+        for (Map.Entry<String, MethodHandle> test : handles.entrySet()) {
+            tests.add(test.getValue());
+            stats.add(report.add(test.getKey()));
+        }
+
+        out.println("\n===== RUNNING LOAD: " + perSecond + " tests/s for " + duration.toSeconds() + " s =====\n");
+        try {
+            runner.invokeStatic(BeforeAll.class);
+
+            long period = Math.max(1, (long) (1_000_000_000L / perSecond));
+            long arrivals = Math.max(1, duration.toNanos() / period);
+            ExecutorService executor = ClientExecutors.threadPerTask("testlang-user-");
+            long start = System.nanoTime();
+            try {
+                for (long i = 0; i < arrivals; i++) {
+                    long intended = start + i * period;
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+
+                    MethodHandle test = tests.get((int) (i % tests.size()));
+                    LoadReport.TestStats testStats = stats.get((int) (i % tests.size()));
+                    executor.execute(() -> {
+                        String error = invoke(test);
+                        testStats.record(System.nanoTime() - intended, error);
+                    });
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            report.finish(System.nanoTime() - start);
+        } finally {
+            runner.invokeStatic(AfterAll.class);
+        }
+
+        report.print(out);
+        return report;
+    }
+
+    private void runUser(List<MethodHandle> tests, List<LoadReport.TestStats> stats, long deadline) {
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < tests.size() && System.nanoTime() < deadline; i++) {
+                long start = System.nanoTime();
+                String error = invoke(tests.get(i));
+                stats.get(i).record(System.nanoTime() - start, error);
+            }
+        }
+    }
+
+    /**
+     * Runs one test on a fresh instance and returns its failure message, or null if it passed
+     */
+    private String invoke(MethodHandle test) {
+        try {
+            test.invokeExact(runner.newInstance());
+            return null;
+        } catch (Throwable t) {
+            return t.getMessage() != null ? t.getMessage() : t.toString();
+        }
+    }
+}
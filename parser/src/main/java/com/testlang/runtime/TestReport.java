@@ -0,0 +1,50 @@
+package com.testlang.runtime;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Prints test results in the same format as the RunTests runner
+ */
+public class TestReport {
+
+    private TestReport() {
+    }
+
+    public static void printHeader(PrintStream out) {
+        out.println("\n===== RUNNING TESTS =====\n");
+    }
+
+    public static void printResult(TestResult result, PrintStream out) {
+        if (result.isPassed()) {
+            out.println("✓ " + result.getName() + " Test PASSED (" + result.getElapsedMillis() + " ms)");
+        } else {
+            out.println("✗ " + result.getName() + " Test FAILED: " + result.getMessage()
+                + " (" + result.getElapsedMillis() + " ms)");
+        }
+    }
+
+    public static void printSummary(List<TestResult> results, PrintStream out) {
+        int passed = 0;
+        for (TestResult result : results) {
+            if (result.isPassed()) {
+                passed++;
+            }
+        }
+
+        out.println("\n===== RESULTS =====");
+        out.println("Total:  " + results.size());
+        out.println("Passed: " + passed);
+        out.println("Failed: " + (results.size() - passed));
+        out.println("===================\n");
+    }
+
+    public static boolean allPassed(List<TestResult> results) {
+        for (TestResult result : results) {
+            if (!result.isPassed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package com.testlang.runtime;
+
+/**
+ * Outcome of a single executed test
+ */
+public class TestResult {
+    private final String name;
+    private final boolean passed;
+    private final String message;  // Failure message, null when passed
+    private final long elapsedNanos;
+
+    public TestResult(String name, boolean passed, String message, long elapsedNanos) {
+        this.name = name;
+        this.passed = passed;
+        this.message = message;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public static TestResult passed(String name, long elapsedNanos) {
+        return new TestResult(name, true, null, elapsedNanos);
+    }
+
+    public static TestResult failed(String name, String message, long elapsedNanos) {
+        return new TestResult(name, false, message, elapsedNanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isPassed() {
+        return passed;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+}
@@ -0,0 +1,131 @@
+package com.testlang.runtime;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+
+import java.io.PrintStream;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs every test_* method of a generated test class concurrently on a bounded thread pool.
+ * Methods are resolved to MethodHandles once, so each run is a direct invocation.
+ */
+public class TestRunner {
+    // Tests in flight when no parallelism is given, so a large suite does not start a thread per test
+    static final int DEFAULT_PARALLELISM = 64;
+
+    private final Class<?> testClass;
+    private final MethodHandles.Lookup lookup;
+    private final MethodHandle constructor;
+
+    public TestRunner(Class<?> testClass) throws ReflectiveOperationException {
+        this.testClass = testClass;
+        this.lookup = MethodHandles.privateLookupIn(testClass, MethodHandles.lookup());
+        this.constructor = lookup.findConstructor(testClass, MethodType.methodType(void.class))
+            .asType(MethodType.methodType(Object.class));
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length < 1) {
+            System.err.println("Usage: java com.testlang.runtime.TestRunner <TestClass> [parallelism]");
+            System.exit(1);
+        }
+
+        Class<?> testClass = Class.forName(args[0]);
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        List<TestResult> results = new TestRunner(testClass).run(parallelism, System.out);
+        if (!TestReport.allPassed(results)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs setup, all tests and teardown, printing each result as it completes. Teardown
+     * runs even if setup or the run itself throws, so AfterAll hooks such as the latency
+     * report still see the tests that did complete.
+     *
+     * @param parallelism maximum number of tests in flight; 0 or less uses DEFAULT_PARALLELISM
+     */
+    public List<TestResult> run(int parallelism, PrintStream out) throws Throwable {
+        Map<String, MethodHandle> tests = findTests();
+        int threads = Math.min(parallelism > 0 ? parallelism : DEFAULT_PARALLELISM, tests.size());
+
+        TestReport.printHeader(out);
+        List<TestResult> results = new ArrayList<>();
+        try {
+            invokeStatic(BeforeAll.class);
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1),
+                ClientExecutors.virtualOrDaemonThreads("testlang-runner-"));
+            try {
+                CompletionService<TestResult> completion = new ExecutorCompletionService<>(executor);
+                for (Map.Entry<String, MethodHandle> test : tests.entrySet()) {
+                    completion.submit(() -> runTest(test.getKey(), test.getValue()));
+                }
+                for (int i = 0; i < tests.size(); i++) {
+                    TestResult result = completion.take().get();
+                    TestReport.printResult(result, out);
+                    results.add(result);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            invokeStatic(AfterAll.class);
+        }
+
+        TestReport.printSummary(results, out);
+        return results;
+    }
+
+    private TestResult runTest(String name, MethodHandle test) {
+        long start = System.nanoTime();
+        try {
+            test.invokeExact(newInstance());
+            return TestResult.passed(name, System.nanoTime() - start);
+        } catch (Throwable t) {
+            String message = t.getMessage() != null ? t.getMessage() : t.toString();
+            return TestResult.failed(name, message, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Creates a fresh instance of the test class, as JUnit does for each test
+     */
+    Object newInstance() throws Throwable {
+        return (Object) constructor.invokeExact();
+    }
+
+    /**
+     * Resolves test_* instance methods to handles of type (Object)void, keyed by test name
+     */
+    Map<String, MethodHandle> findTests() throws IllegalAccessException {
+        Map<String, MethodHandle> tests = new TreeMap<>();
+        for (Method method : testClass.getDeclaredMethods()) {
+            if (method.getName().startsWith("test_")
+                    && method.getParameterCount() == 0
+                    && !Modifier.isStatic(method.getModifiers())) {
+                MethodHandle handle = lookup.unreflect(method)
+                    .asType(MethodType.methodType(void.class, Object.class));
+                tests.put(method.getName().substring("test_".length()), handle);
+            }
+        }
+        return tests;
+    }
+
+    void invokeStatic(Class<? extends Annotation> annotation) throws Throwable {
+        for (Method method : testClass.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(annotation) && Modifier.isStatic(method.getModifiers())) {
+                lookup.unreflect(method).invoke();
+            }
+        }
+    }
+}
@@ -6,9 +6,16 @@ import com.testlang.parser.ValidationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,7 +46,7 @@ public class CodeGeneratorTest {
         assertTrue(code.contains("void test_MinimalTest()"));
         assertTrue(code.contains("GET()"));
         assertTrue(code.contains("assertEquals(200, resp.statusCode())"));
-        assertTrue(code.contains("resp.body().contains(\"test\")"));
+        assertTrue(code.contains("assertTrue(found[0], \"expected body to contain \\\"test\\\"\");"));
     }
 
     @Test
@@ -62,7 +69,7 @@ public class CodeGeneratorTest {
         String code = generator.generate();
 
         assertTrue(code.contains("http://example.com:3000"));
-        assertTrue(code.contains("DEFAULT_HEADERS.put(\"Authorization\",\"Bearer token\")"));
+        assertTrue(code.contains(".header(\"Authorization\", \"Bearer token\")"));
     }
 
     @Test
@@ -89,6 +96,32 @@ public class CodeGeneratorTest {
         assertFalse(code.contains("$name"));
     }
 
+    @Test
+    public void testVariablePrefixesDoNotCollide(@TempDir Path tempDir) throws Exception {
+        String input = """
+            let id = 42;
+            let idx = 7;
+
+            test PrefixTest {
+                POST "/api/items/$idx/$id" {
+                    body = "{ \\"id\\": $id, \\"ref\\": \\"$idy\\", \\"cost\\": \\"$5\\" }";
+                };
+                expect status = 200;
+                expect body contains "$idx";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        String code = new CodeGenerator(program).generate();
+
+        assertTrue(code.contains("/api/items/7/42"));
+        assertTrue(code.contains("\\\"id\\\": 42"));
+        // Unknown variables and a bare '$' are left untouched
+        assertTrue(code.contains("\\\"ref\\\": \\\"$idy\\\""));
+        assertTrue(code.contains("\\\"cost\\\": \\\"$5\\\""));
+        assertTrue(code.contains("new BodyMatcher(\"7\")"));
+    }
+
     @Test
     public void testGeneratePostWithBody(@TempDir Path tempDir) throws Exception {
         String input = """
@@ -107,7 +140,7 @@ public class CodeGeneratorTest {
         String code = generator.generate();
 
         assertTrue(code.contains("POST(HttpRequest.BodyPublishers.ofString("));
-        assertTrue(code.contains("b.header(\"Content-Type\", \"application/json\")"));
+        assertTrue(code.contains(".header(\"Content-Type\", \"application/json\")"));
         assertTrue(code.contains("name"));
     }
 
@@ -307,7 +340,7 @@ public class CodeGeneratorTest {
 
         // Verify proper method structure
         assertTrue(code.contains("throws Exception"));
-        assertTrue(code.contains("HttpResponse<String> resp"));
+        assertTrue(code.contains("HttpResponse<?> resp"));
 
         // Write to file to verify it's valid Java syntax
         File javaFile = tempDir.resolve("GeneratedTests.java").toFile();
@@ -320,6 +353,428 @@ public class CodeGeneratorTest {
         assertTrue(javaFile.length() > 0);
     }
 
+    @Test
+    public void testRequestsArePrebuiltConstants(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                header "Content-Type" = "application/json";
+                header "X-App" = "Demo";
+            }
+
+            test Update {
+                PUT "/api/users/1" {
+                    header "content-type" = "text/plain";
+                    body = "role";
+                };
+                expect status = 200;
+                GET "/api/users/1";
+                expect status = 200;
+                expect body contains "role";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        String code = new CodeGenerator(program).generate();
+
+        assertTrue(code.contains("    static final class Requests_Update {\n"
+            + "        static final HttpRequest REQ_1 = HttpRequest.newBuilder("));
+        assertTrue(code.contains("        static final HttpRequest REQ_2 = HttpRequest.newBuilder("));
+        assertTrue(code.contains("HttpResponse<?> resp = client.send(Requests_Update.REQ_1,"));
+        assertTrue(code.contains("        resp = client.send(Requests_Update.REQ_2,"));
+
+        // Request headers override defaults of the same name; other defaults are merged in
+        assertTrue(code.contains(".header(\"content-type\", \"text/plain\")"));
+        assertEquals(1, countOccurrences(code, ".header(\"Content-Type\", \"application/json\")"));
+        assertEquals(2, countOccurrences(code, ".header(\"X-App\", \"Demo\")"));
+        assertFalse(code.contains("HttpRequest.Builder"));
+    }
+
+    @Test
+    public void testBodyAssertionsShareOneMatcher(@TempDir Path tempDir) throws Exception {
+        String input = """
+            let name = "admin";
+
+            test Profile {
+                GET "/api/users/1";
+                expect status = 200;
+                expect body contains "$name";
+                expect header "Content-Type" contains "json";
+                expect body contains "\\"email\\"";
+                GET "/api/users/2";
+                expect status = 200;
+                expect header "Content-Type" contains "json";
+                GET "/api/users/3";
+                expect body contains "guest";
+                expect status = 200;
+            }
+            """;
+
+        String code = new CodeGenerator(parseString(input, tempDir)).generate();
+
+        // Needles between a request and the next one share one matcher, which reads the body
+        assertTrue(code.contains("        static final BodyMatcher BODY_1 = new BodyMatcher(\"admin\", \"\\\"email\\\"\");"));
+        assertTrue(code.contains("        HttpResponse<?> resp = client.send(Requests_Profile.REQ_1, Requests_Profile.BODY_1.bodyHandler());"));
+        assertTrue(code.contains("        Requests_Profile.LATENCY_1.record(elapsedNanos);\n"
+            + "        boolean[] found = Requests_Profile.BODY_1.match(resp);\n"));
+        assertTrue(code.contains("        assertTrue(found[0], \"expected body to contain \\\"admin\\\"\");"));
+        assertTrue(code.contains("        assertTrue(found[1], \"expected body to contain \\\"\\\"email\\\"\\\"\");"));
+
+        // A request without body assertions has no matcher and its body is not read
+        assertFalse(code.contains("BODY_2"));
+        assertTrue(code.contains("        resp = client.send(Requests_Profile.REQ_2, HttpResponse.BodyHandlers.discarding());"));
+        assertFalse(code.contains("MAX_BODY_SIZE"));
+
+        assertTrue(code.contains("        found = Requests_Profile.BODY_3.match(resp);\n"));
+        assertTrue(code.contains("        static final BodyMatcher BODY_3 = new BodyMatcher(\"guest\");"));
+    }
+
+    @Test
+    public void testGenerateClientOptions(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                http_version = "HTTP/1.1";
+                connect_timeout = 1s;
+                request_timeout = 250ms;
+                executor = 32;
+                redirects = "normal";
+                warmup = 4;
+            }
+
+            test Tuned {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        String code = new CodeGenerator(parseString(input, tempDir)).generate();
+        assertTrue(code.contains("        client = HttpClient.newBuilder()\n"
+            + "            .connectTimeout(Duration.ofMillis(1000))\n"
+            + "            .version(HttpClient.Version.HTTP_1_1)\n"
+            + "            .followRedirects(HttpClient.Redirect.NORMAL)\n"
+            + "            .executor(ClientExecutors.fixed(32))\n"
+            + "            .build();\n"
+            + "        ClientWarmup.warmUp(client, BASE, 4, Duration.ofMillis(250));\n"));
+        assertTrue(code.contains("            .timeout(Duration.ofMillis(250))\n"));
+
+        String virtual = new CodeGenerator(parseString(input.replace("executor = 32;", "executor = \"virtual\";"), tempDir))
+            .generate();
+        assertTrue(virtual.contains("            .executor(ClientExecutors.virtual())\n"));
+
+        // Without transport options the client and requests keep their defaults
+        String plain = new CodeGenerator(parseString(input.replaceAll("(?s)config \\{.*?\\}", ""), tempDir)).generate();
+        assertTrue(plain.contains("        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();\n"));
+        assertTrue(plain.contains("            .timeout(Duration.ofSeconds(10))\n"));
+        assertFalse(plain.contains("ClientWarmup.warmUp("));
+    }
+
+    @Test
+    public void testMaxBodySizeCapsReadBodies(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                max_body_size = 1048576;
+            }
+
+            test Capped {
+                GET "/api/users/1";
+                expect body contains "id";
+                GET "/api/users/2";
+                expect status = 200;
+            }
+            """;
+
+        String code = new CodeGenerator(parseString(input, tempDir)).generate();
+
+        assertTrue(code.contains("    static final long MAX_BODY_SIZE = 1048576L;\n"));
+        assertTrue(code.contains("client.send(Requests_Capped.REQ_1, BodyLimit.limit(Requests_Capped.BODY_1.bodyHandler(), MAX_BODY_SIZE));"));
+        // Discarded bodies are never held, so they need no cap
+        assertTrue(code.contains("client.send(Requests_Capped.REQ_2, HttpResponse.BodyHandlers.discarding());"));
+    }
+
+    @Test
+    public void testGenerateResponseTimeAssertion(@TempDir Path tempDir) throws Exception {
+        String input = """
+            test Timed {
+                GET "/api/first";
+                GET "/api/second";
+                expect status = 200;
+                expect time < 150ms;
+            }
+
+            test Untimed {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        String code = new CodeGenerator(program).generate();
+
+        // Every send is timed; the assertion checks the latest one
+        assertTrue(code.contains("        long start = System.nanoTime();\n"
+            + "        HttpResponse<?> resp = client.send(Requests_Timed.REQ_1,"));
+        assertTrue(code.contains("        long elapsedNanos = System.nanoTime() - start;"));
+        assertTrue(code.contains("        start = System.nanoTime();\n        resp = client.send(Requests_Timed.REQ_2,"));
+        assertTrue(code.contains("        elapsedNanos = System.nanoTime() - start;"));
+        assertTrue(code.contains("assertTrue(elapsedNanos < 150000000L, \"expected response time below 150 ms but was \""
+            + " + elapsedNanos / 1_000_000 + \" ms\");"));
+    }
+
+    @Test
+    public void testGeneratePercentileAssertion(@TempDir Path tempDir) throws Exception {
+        String input = """
+            test Slo {
+                DELETE "/api/sessions/1";
+                GET "/api/users/1";
+                expect status = 200;
+                expect p99.9 < 50ms over 1000 runs;
+            }
+            """;
+
+        String code = new CodeGenerator(parseString(input, tempDir)).generate();
+
+        // A tenth of the runs warm up first; the latest request is the one measured
+        assertTrue(code.contains("            for (int run = -100; run < 1000; run++) {\n"
+            + "                long runStart = System.nanoTime();\n"
+            + "                client.send(Requests_Slo.REQ_2, HttpResponse.BodyHandlers.discarding());\n"
+            + "                long runNanos = System.nanoTime() - runStart;\n"));
+        assertTrue(code.contains("                if (run >= 0) {\n"
+            + "                    runs.record(runNanos);\n"
+            + "                    Requests_Slo.LATENCY_2.record(runNanos);\n"));
+        assertTrue(code.contains("            long percentile = runs.getValueAtPercentile(99.9);\n"
+            + "            assertTrue(percentile < 50000000L, \"expected p99.9 below 50 ms over 1000 runs but was \""
+            + " + percentile / 1_000_000 + \" ms\");\n"));
+
+        CodeGenerator tooHigh = new CodeGenerator(parseString(input.replace("p99.9", "p101"), tempDir));
+        ValidationException exception = assertThrows(ValidationException.class, tooHigh::generate);
+        assertTrue(exception.getMessage().contains("found p101"));
+
+        CodeGenerator noRuns = new CodeGenerator(parseString(input.replace("1000 runs", "0 runs"), tempDir));
+        assertThrows(ValidationException.class, noRuns::generate);
+    }
+
+    @Test
+    public void testTimeAssertionAfterPercentileChecksTheFirstResponse(@TempDir Path tempDir) throws Exception {
+        String input = """
+            test Slo {
+                GET "/api/users/1";
+                expect p99 < 50ms over 100 runs;
+                expect time < 200ms;
+            }
+            """;
+
+        String code = new CodeGenerator(parseString(input, tempDir)).generate();
+
+        // The percentile runs keep their own timings, so elapsedNanos is only ever the first send's
+        int timed = code.indexOf("long elapsedNanos = System.nanoTime() - start;");
+        int percentile = code.indexOf("long percentile = runs.getValueAtPercentile(99.0);");
+        int time = code.indexOf("assertTrue(elapsedNanos < 200000000L");
+        assertTrue(timed >= 0 && timed < percentile && percentile < time, code);
+        assertEquals(code.indexOf("elapsedNanos = "), code.lastIndexOf("elapsedNanos = "));
+        assertFalse(code.contains("        start = System.nanoTime();"));
+    }
+
+    @Test
+    public void testGenerateLatencyHistograms(@TempDir Path tempDir) throws Exception {
+        String input = """
+            let id = 7;
+
+            test Users {
+                GET "/api/users/$id";
+                DELETE "/api/users/$id";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        CodeGenerator generator = new CodeGenerator(parseString(input, tempDir));
+        generator.setClassName("UserTests");
+        String code = generator.generate();
+
+        // One histogram per request, keyed by class, test and request line
+        assertTrue(code.contains("        static final LatencyHistogram LATENCY_1 = "
+            + "LatencyRecorder.histogram(\"UserTests\", \"Users\", \"GET /api/users/7\");"));
+        assertTrue(code.contains("LatencyRecorder.histogram(\"UserTests\", \"Users\", \"DELETE /api/users/7\");"));
+        assertTrue(code.contains("        long elapsedNanos = System.nanoTime() - start;\n"
+            + "        Requests_Users.LATENCY_1.record(elapsedNanos);\n"));
+        assertTrue(code.contains("        Requests_Users.LATENCY_2.record(elapsedNanos);\n"));
+
+        // The report is written once the class's tests are done
+        assertTrue(code.contains("    @AfterAll\n    static void teardown() throws Exception {\n"
+            + "        LatencyRecorder.writeReport();\n"));
+    }
+
+    @Test
+    public void testGenerateLoadDriver(@TempDir Path tempDir) throws Exception {
+        String input = """
+            load {
+                users = 50;
+                duration = 2s;
+            }
+
+            test Browse {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        String code = new CodeGenerator(parseString(input, tempDir)).generate();
+
+        assertTrue(code.contains("    public static void main(String[] args) throws Throwable {\n"
+            + "        com.testlang.runtime.LoadReport report = new com.testlang.runtime.LoadRunner(GeneratedTests.class)\n"
+            + "            .run(50, Duration.ofMillis(2000), System.out);\n"));
+        assertTrue(code.endsWith("    }\n\n}\n"));
+
+        // Without a load block there is no driver
+        String plain = new CodeGenerator(parseString(input.replaceAll("(?s)load \\{.*?\\}", ""), tempDir)).generate();
+        assertFalse(plain.contains("LoadRunner"));
+    }
+
+    @Test
+    public void testGenerateArrivalRateDriver(@TempDir Path tempDir) throws Exception {
+        String input = """
+            load {
+                rate = 500/s;
+                duration = 60s;
+            }
+
+            test Browse {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        String code = new CodeGenerator(parseString(input, tempDir)).generate();
+        assertTrue(code.contains("            .runAtRate(500.0, Duration.ofMillis(60000), System.out);\n"));
+
+        CodeGenerator both = new CodeGenerator(parseString(input.replace("rate = 500/s;", "rate = 500/s; users = 5;"), tempDir));
+        ValidationException exception = assertThrows(ValidationException.class, both::generate);
+        assertTrue(exception.getMessage().contains("either users or rate"));
+    }
+
+    @Test
+    public void testValidationErrorLoadWithoutUsers(@TempDir Path tempDir) throws Exception {
+        String input = """
+            load {
+                duration = 10s;
+            }
+
+            test Browse {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        CodeGenerator generator = new CodeGenerator(parseString(input, tempDir));
+
+        ValidationException exception = assertThrows(ValidationException.class, generator::generate);
+        assertTrue(exception.getMessage().contains("Load block must set users"));
+    }
+
+    @Test
+    public void testValidationErrorAssertionBeforeRequest(@TempDir Path tempDir) throws Exception {
+        String input = """
+            test EarlyAssertion {
+                expect status = 200;
+                GET "/api/test";
+                expect body contains "test";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        CodeGenerator generator = new CodeGenerator(program);
+
+        ValidationException exception = assertThrows(ValidationException.class, generator::generate);
+        assertTrue(exception.getMessage().contains("must follow an HTTP request"));
+    }
+
+    @Test
+    public void testStreamingOutputMatchesGenerate(@TempDir Path tempDir) throws Exception {
+        String input = """
+            test Unicode {
+                POST "/api/messages" {
+                    body = "héllo ✓ 😀";
+                };
+                expect status = 201;
+                expect body contains "😀";
+            }
+
+            test Second {
+                GET "/api/messages";
+                expect status = 200;
+                expect body contains "héllo";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        String expected = new CodeGenerator(program).generate();
+
+        StringWriter writer = new StringWriter();
+        new CodeGenerator(program).generate(writer);
+        assertEquals(expected, writer.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CodeGenerator(program).generate(Channels.newChannel(bytes));
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    public void testStreamingLargeOutputToChannel() throws Exception {
+        // Larger than the writer's buffer, so surrogate pairs straddle buffer drains
+        Request request = new Request("POST", "/api/upload");
+        request.setBody("a😀".repeat(50_000));
+        Assertion status = new Assertion(Assertion.Type.STATUS_EQUALS);
+        status.setStatusCode(200);
+        Assertion body = new Assertion(Assertion.Type.BODY_CONTAINS);
+        body.setValue("ok");
+
+        com.testlang.ast.Test test = new com.testlang.ast.Test("Upload");
+        test.addStatement(request);
+        test.addStatement(status);
+        test.addStatement(body);
+        Program program = new Program();
+        program.addTest(test);
+
+        String expected = new CodeGenerator(program).generate();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CodeGenerator(program).generate(Channels.newChannel(bytes));
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    public void testLargeSuiteCompiles(@TempDir Path tempDir) throws Exception {
+        // Enough request, histogram and matcher constants to overflow a single static initializer
+        Program program = new Program();
+        for (int i = 0; i < 1500; i++) {
+            Request request = new Request("POST", "/api/items/" + i);
+            request.setBody("{\"id\": " + i + "}");
+            Assertion status = new Assertion(Assertion.Type.STATUS_EQUALS);
+            status.setStatusCode(201);
+            Assertion body = new Assertion(Assertion.Type.BODY_CONTAINS);
+            body.setValue("\"id\": " + i);
+
+            com.testlang.ast.Test test = new com.testlang.ast.Test("T" + i);
+            test.addStatement(request);
+            test.addStatement(status);
+            test.addStatement(body);
+            program.addTest(test);
+        }
+
+        Path source = tempDir.resolve("GeneratedTests.java");
+        Files.writeString(source, new CodeGenerator(program).generate());
+
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int exitCode = javac.run(null, null, errors, "-proc:none", "-d", tempDir.toString(),
+            "-cp", System.getProperty("java.class.path"), source.toString());
+        assertEquals(0, exitCode, errors.toString(StandardCharsets.UTF_8));
+        assertTrue(Files.exists(tempDir.resolve("GeneratedTests$Requests_T1499.class")));
+    }
+
     // Helper methods
     private Program parseString(String input, Path tempDir) throws Exception {
         File testFile = tempDir.resolve("test.test").toFile();
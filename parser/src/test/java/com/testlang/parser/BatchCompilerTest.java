@@ -0,0 +1,136 @@
+package com.testlang.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for batch compilation of many .test files
+ */
+public class BatchCompilerTest {
+
+    private static final String VALID = """
+        test %s {
+            GET "/api/%s";
+            expect status = 200;
+            expect body contains "ok";
+        }
+        """;
+
+    @Test
+    public void testClassNameFromFileName() {
+        assertEquals("UserApiTests", BatchCompiler.className(Paths.get("dir/user-api.test")));
+        assertEquals("OrdersTests", BatchCompiler.className(Paths.get("orders.test")));
+        assertEquals("T2faTests", BatchCompiler.className(Paths.get("2fa.test")));
+    }
+
+    @Test
+    public void testExpandDirectoriesAndGlobs(@TempDir Path tempDir) throws Exception {
+        writeFile(tempDir.resolve("a.test"), "");
+        writeFile(tempDir.resolve("sub/b.test"), "");
+        writeFile(tempDir.resolve("sub/notes.txt"), "");
+        writeFile(tempDir.resolve("other/c.test"), "");
+
+        // Inputs keep their order and are only listed once
+        assertEquals(List.of(tempDir.resolve("sub/b.test"), tempDir.resolve("a.test")),
+            BatchCompiler.expand(List.of("sub", "*.test", "sub/b.test"), tempDir));
+        assertEquals(List.of(tempDir.resolve("other/c.test"), tempDir.resolve("sub/b.test")),
+            BatchCompiler.expand(List.of("*/*.test"), tempDir));
+        assertEquals(3, BatchCompiler.expand(List.of("."), tempDir).size());
+    }
+
+    @Test
+    public void testBatchCompilesEachFileAndCollectsErrors(@TempDir Path tempDir) throws Exception {
+        for (int i = 0; i < 8; i++) {
+            writeFile(tempDir.resolve("tests/api-" + i + ".test"), String.format(VALID, "T" + i, "r" + i));
+        }
+        writeFile(tempDir.resolve("tests/broken.test"), """
+            test Broken {
+                GET "/api";
+                expect status = 200;
+            }
+            """);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = TestLangParser.run(new String[] {"--jobs", "4", "--batch", "gen", "tests"}, tempDir,
+            new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+
+        // One failure does not stop the other files
+        assertEquals(1, status);
+        for (int i = 0; i < 8; i++) {
+            String code = Files.readString(tempDir.resolve("gen/Api" + i + "Tests.java"));
+            assertTrue(code.contains("public class Api" + i + "Tests {"));
+            assertTrue(code.contains("void test_T" + i + "()"));
+        }
+        assertFalse(Files.exists(tempDir.resolve("gen/BrokenTests.java")));
+
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("Compiled 8 of 9 files (1 failed)"));
+        String errors = err.toString(StandardCharsets.UTF_8);
+        assertTrue(errors.contains("=== FAILED: tests/broken.test ==="));
+        assertTrue(errors.contains("Test must contain at least 2 assertions"));
+    }
+
+    @Test
+    public void testSyntaxErrorsStayWithTheirFile(@TempDir Path tempDir) throws Exception {
+        for (int i = 0; i < 8; i++) {
+            writeFile(tempDir.resolve("tests/bad-" + i + ".test"), """
+                test Bad {
+                    GET "/api";
+                    expect status = "%d";
+                    expect body contains "ok";
+                }
+                """.formatted(i));
+        }
+
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream stderr = System.err;
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        List<BatchCompiler.FileResult> results;
+        try {
+            results = new BatchCompiler(tempDir.resolve("gen"), null, 4)
+                .compile(BatchCompiler.expand(List.of("tests"), tempDir));
+        } finally {
+            System.setErr(stderr);
+        }
+
+        // Each file's result names its own offending token; nothing goes to the shared stderr
+        for (int i = 0; i < 8; i++) {
+            BatchCompiler.FileResult result = results.get(i);
+            assertEquals(tempDir.resolve("tests/bad-" + i + ".test"), result.getInput());
+            assertTrue(result.getError().contains("Parse error at line 3"), result.getError());
+            assertTrue(result.getError().contains("unexpected '" + i + "'"), result.getError());
+        }
+        assertEquals("", captured.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDuplicateClassNamesAreReported(@TempDir Path tempDir) throws Exception {
+        writeFile(tempDir.resolve("a/users.test"), String.format(VALID, "A", "a"));
+        writeFile(tempDir.resolve("b/users.test"), String.format(VALID, "B", "b"));
+
+        List<BatchCompiler.FileResult> results = new BatchCompiler(tempDir.resolve("gen"), null, 2)
+            .compile(BatchCompiler.expand(List.of("a", "b"), tempDir));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError().contains("UsersTests.java is already generated from"));
+    }
+
+    private void writeFile(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        try (FileWriter writer = new FileWriter(file.toFile())) {
+            writer.write(content);
+        }
+    }
+}
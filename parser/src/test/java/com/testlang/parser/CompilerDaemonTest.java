@@ -0,0 +1,138 @@
+package com.testlang.parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the compile daemon and its client
+ */
+public class CompilerDaemonTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CompilerDaemon daemon;
+    private Path socket;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        socket = tempDir.resolve("d.sock");
+        daemon = new CompilerDaemon(socket);
+        daemon.start();
+        Thread server = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (Exception e) {
+                // Closed by tearDown
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        daemon.close();
+    }
+
+    @Test
+    public void testDaemonGeneratesRelativeToClientDirectory() throws Exception {
+        writeFile("api.test", """
+            let unused = 1;
+
+            test Ping {
+                GET "/ping";
+                expect status = 200;
+                expect body contains "pong";
+            }
+            """);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = forward(out, err, "api.test", "Out.java");
+
+        assertEquals(0, status);
+        assertEquals("Successfully generated Out.java", out.toString(StandardCharsets.UTF_8).trim());
+        // Warnings reach the client rather than the daemon's own stderr
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Variable 'unused' is declared but never used"));
+        assertTrue(Files.readString(tempDir.resolve("Out.java")).contains("void test_Ping()"));
+    }
+
+    @Test
+    public void testDaemonReportsErrorsWithExitStatus() throws Exception {
+        writeFile("bad.test", """
+            test Incomplete {
+                GET "/ping";
+                expect status = 200;
+            }
+            """);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = forward(out, err, "bad.test", "Out.java");
+
+        assertEquals(1, status);
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("=== VALIDATION ERROR ==="));
+        assertFalse(Files.exists(tempDir.resolve("Out.java")));
+
+        // The daemon keeps serving after a failed command
+        assertEquals(1, forward(out, err, "missing.test"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Input file not found: missing.test"));
+    }
+
+    @Test
+    public void testDaemonReportsSyntaxErrorDetail() throws Exception {
+        writeFile("typo.test", """
+            test Typo {
+                GET "/ping";
+                expect status = "200";
+                expect body contains "pong";
+            }
+            """);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = forward(out, err, "typo.test", "Out.java");
+
+        // The offending token reaches the client, not only the daemon's own stderr
+        assertEquals(1, status);
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Parse error at line 3: "
+            + "Cannot recover from syntax error. Parsing aborted.\n  Context: unexpected '200'"));
+    }
+
+    @Test
+    public void testSecondDaemonOnSameSocketFails() {
+        assertThrows(java.io.IOException.class, () -> new CompilerDaemon(socket).start());
+    }
+
+    @Test
+    public void testConnectWithoutDaemonReturnsNull() {
+        assertNull(CompilerDaemon.connect(tempDir.resolve("none.sock")));
+    }
+
+    private int forward(ByteArrayOutputStream out, ByteArrayOutputStream err, String... args) throws Exception {
+        try (SocketChannel channel = CompilerDaemon.connect(socket)) {
+            assertNotNull(channel);
+            return CompilerDaemon.forward(channel, tempDir, args,
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+        }
+    }
+
+    private void writeFile(String name, String input) throws Exception {
+        try (FileWriter writer = new FileWriter(tempDir.resolve(name).toFile())) {
+            writer.write(input);
+        }
+    }
+}
@@ -117,6 +117,28 @@ public class LexerTest {
         assertEquals("path\\to\\file", t2.value);
     }
 
+    @Test
+    public void testStringEscapesAtEdgesAndLargeLiterals() throws Exception {
+        Lexer lexer = createLexer("\"\\\\\\\"\" \"\\\"quoted\\\"\" \"\"");
+        assertEquals("\\\"", lexer.next_token().value);
+        assertEquals("\"quoted\"", lexer.next_token().value);
+        assertEquals("", lexer.next_token().value);
+
+        // An inline JSON body larger than the scanner's initial buffer
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 5000; i++) {
+            json.append("\"key").append(i).append("\": \"value\\path\", ");
+        }
+        String body = json.append("\"end\": true}").toString();
+        String literal = "\"" + body.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        lexer = createLexer("body = " + literal + " \"" + "x".repeat(40000) + "\";");
+        assertEquals(sym.BODY, lexer.next_token().sym);
+        assertEquals(sym.EQUALS, lexer.next_token().sym);
+        assertEquals(body, lexer.next_token().value);
+        assertEquals("x".repeat(40000), lexer.next_token().value);
+        assertEquals(sym.SEMICOLON, lexer.next_token().sym);
+    }
+
     @Test
     public void testComments() throws Exception {
         String input = "let x = \"test\"; // this is a comment\nlet y = \"test2\";";
@@ -166,6 +188,74 @@ public class LexerTest {
         assertEquals(2, t2.left); // line 2
     }
 
+    @Test
+    public void testDurations() throws Exception {
+        Lexer lexer = createLexer("expect time < 200ms 2s 0ms time");
+
+        assertEquals(sym.EXPECT, lexer.next_token().sym);
+        assertEquals(sym.TIME, lexer.next_token().sym);
+        assertEquals(sym.LT, lexer.next_token().sym);
+
+        Symbol millis = lexer.next_token();
+        assertEquals(sym.DURATION, millis.sym);
+        assertEquals(200L, millis.value);
+
+        Symbol seconds = lexer.next_token();
+        assertEquals(sym.DURATION, seconds.sym);
+        assertEquals(2000L, seconds.value);
+
+        assertEquals(0L, lexer.next_token().value);
+
+        // Anywhere but right after expect, time is a name
+        assertEquals(sym.IDENTIFIER, lexer.next_token().sym);
+    }
+
+    @Test
+    public void testRates() throws Exception {
+        Lexer lexer = createLexer("500/s 120/m");
+
+        Symbol perSecond = lexer.next_token();
+        assertEquals(sym.RATE, perSecond.sym);
+        assertEquals(500.0, perSecond.value);
+        assertEquals(2.0, lexer.next_token().value);
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        Lexer lexer = createLexer("expect p99.9 < 50ms over 1000 runs; p50 p99x over runs expect // p\n p1");
+
+        assertEquals(sym.EXPECT, lexer.next_token().sym);
+        Symbol percentile = lexer.next_token();
+        assertEquals(sym.PERCENTILE, percentile.sym);
+        assertEquals(99.9, percentile.value);
+        assertEquals(sym.LT, lexer.next_token().sym);
+        assertEquals(sym.DURATION, lexer.next_token().sym);
+        assertEquals(sym.OVER, lexer.next_token().sym);
+        assertEquals(1000, lexer.next_token().value);
+        assertEquals(sym.RUNS, lexer.next_token().sym);
+        assertEquals(sym.SEMICOLON, lexer.next_token().sym);
+
+        // Outside an assertion, p50 is a name like p99x, and so are over and runs
+        Symbol name = lexer.next_token();
+        assertEquals(sym.IDENTIFIER, name.sym);
+        assertEquals("p50", name.value);
+        assertEquals(sym.IDENTIFIER, lexer.next_token().sym);
+        assertEquals("over", lexer.next_token().value);
+        assertEquals("runs", lexer.next_token().value);
+
+        // Comments and line breaks after expect still allow a percentile
+        assertEquals(sym.EXPECT, lexer.next_token().sym);
+        assertEquals(1.0, lexer.next_token().value);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2sec", "5m", "99999999999999999999ms"})
+    public void testInvalidDurations(String input) {
+        Lexer lexer = createLexer(input);
+
+        assertThrows(LexerException.class, lexer::next_token);
+    }
+
     @Test
     public void testUnterminatedString() {
         String input = "let x = \"unterminated;";
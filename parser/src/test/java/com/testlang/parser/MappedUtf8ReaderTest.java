@@ -0,0 +1,103 @@
+package com.testlang.parser;
+
+import com.testlang.ast.Program;
+import com.testlang.ast.Request;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for decoding source files through a memory mapping
+ */
+public class MappedUtf8ReaderTest {
+
+    private static final String MIXED = "let name = \"Zoë → 東京 🚀\";\n// ASCII again\n";
+
+    private static Path write(Path dir, byte[] bytes) throws Exception {
+        Path file = dir.resolve("input.test");
+        Files.write(file, bytes);
+        return file;
+    }
+
+    private static String readAll(Reader reader, int chunk) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[chunk];
+        int n;
+        while ((n = reader.read(buffer, 0, chunk)) != -1) {
+            assertTrue(n > 0);
+            sb.append(buffer, 0, n);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testDecodesUtf8InAnyChunkSize(@TempDir Path tempDir) throws Exception {
+        Path file = write(tempDir, MIXED.getBytes(StandardCharsets.UTF_8));
+        for (int chunk : new int[] {1, 2, 3, 7, 16384}) {
+            try (Reader reader = MappedUtf8Reader.open(file)) {
+                assertEquals(MIXED, readAll(reader, chunk), "chunk " + chunk);
+            }
+        }
+
+        // The emoji is a surrogate pair, split across two single-char reads
+        try (Reader reader = MappedUtf8Reader.open(file)) {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                sb.append((char) c);
+            }
+            assertEquals(MIXED, sb.toString());
+        }
+    }
+
+    @Test
+    public void testByteOrderMarkAndMalformedInput(@TempDir Path tempDir) throws Exception {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a', 'b'};
+        try (Reader reader = MappedUtf8Reader.open(write(tempDir, bom))) {
+            assertEquals("ab", readAll(reader, 64));
+        }
+
+        // A lone continuation byte and a truncated sequence at the end
+        byte[] malformed = {'a', (byte) 0x80, 'b', (byte) 0xE6, (byte) 0x9D};
+        try (Reader reader = MappedUtf8Reader.open(write(tempDir, malformed))) {
+            String text = readAll(reader, 64);
+            assertTrue(text.startsWith("a�b�"), text);
+        }
+
+        try (Reader reader = MappedUtf8Reader.open(write(tempDir, new byte[0]))) {
+            assertEquals(-1, reader.read(new char[8], 0, 8));
+        }
+    }
+
+    @Test
+    public void testMissingFile(@TempDir Path tempDir) {
+        assertThrows(FileNotFoundException.class, () -> MappedUtf8Reader.open(tempDir.resolve("missing.test")));
+    }
+
+    @Test
+    public void testParsesNonAsciiSource(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                header "X-City" = "Zürich";
+            }
+
+            test Unicode {
+                GET "/api/städte/東京";
+                expect status = 200;
+                expect body contains "🚀";
+            }
+            """;
+        Path file = write(tempDir, input.getBytes(StandardCharsets.UTF_8));
+
+        Program program = TestLangParser.parse(file.toString());
+        assertEquals("Zürich", program.getConfig().getHeaders().get(0).getValue());
+        assertEquals("/api/städte/東京", ((Request) program.getTests().get(0).getStatements().get(0)).getUrl());
+    }
+}
@@ -0,0 +1,202 @@
+package com.testlang.parser;
+
+import com.testlang.ast.Program;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for parsing one file in chunks of tests on several threads
+ */
+public class ParallelParserTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        TestLangParser.setParallel(false);
+    }
+
+    /**
+     * A program with a header and many tests, with the things the pre-scan has to skip:
+     * "test" in strings and comments, and braces in strings
+     */
+    private static String program(int tests) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("config {\n");
+        sb.append("    base_url = \"http://localhost:8080\";\n");
+        sb.append("    header \"X-Note\" = \"}\";\n");
+        sb.append("}\n\n");
+        sb.append("let id = 42;\n");
+        sb.append("let name = \"test Fake {\";\n");
+        for (int t = 0; t < tests; t++) {
+            sb.append("\n// test Commented {\u2028test Hidden {\n");
+            sb.append("test T").append(t).append(" {\r\n");
+            sb.append("    POST \"/api/users/$id\" {\n");
+            sb.append("        body = \"{ \\\"n\\\": \\\"\\\\\\\" }\";\n");
+            sb.append("    };\n");
+            sb.append("    expect status = 200;\n");
+            sb.append("    expect body contains \"test Inner {\";\n");
+            sb.append("    expect time < ").append(t + 1).append("ms;\n");
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The serialized Program, or a description of the exception
+     */
+    private static String outcome(String source, boolean parallel) {
+        try {
+            Program program;
+            if (parallel) {
+                char[] chars = source.toCharArray();
+                program = ParallelParser.parse(chars, chars.length, POOL);
+            } else {
+                program = (Program) new parser(new Lexer(new StringReader(source))).parse().value;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ProgramCache.write(new DataOutputStream(bytes), program);
+            return Arrays.toString(bytes.toByteArray());
+        } catch (ParserException e) {
+            return "ParserException at line " + e.getLine() + ": " + e.getMessage();
+        } catch (LexerException e) {
+            return "LexerException: " + e.getMessage();
+        } catch (Exception e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    @Test
+    public void testFindsTopLevelTests() throws Exception {
+        String source = program(3);
+        char[] chars = source.toCharArray();
+        ParallelParser.Boundaries tests = ParallelParser.findTests(chars, chars.length);
+        assertEquals(3, tests.count);
+        for (int i = 0; i < tests.count; i++) {
+            assertTrue(source.startsWith("test T" + i + " {", tests.offsets[i]));
+        }
+
+        // Lines as the lexer numbers them, where \r\n is one line end and the line separator in
+        // the comments is another
+        TokenStream tokens = TokenStream.tokenize(chars, chars.length);
+        int found = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.kind(i) == sym.TEST) {
+                assertEquals(tokens.line(i), tests.lines[found]);
+                assertEquals(tests.offsets[found], tokens.start(i));
+                found++;
+            }
+        }
+        assertEquals(3, found);
+    }
+
+    @Test
+    public void testSkipsNestedAndIndentedTestKeywords() {
+        String source = "test A {\n  GET \"/\";\ntest B {\n}\n}\n  x test C {}\ntest\nD\n{\n}\ntestE {\n}\n";
+        char[] chars = source.toCharArray();
+        ParallelParser.Boundaries tests = ParallelParser.findTests(chars, chars.length);
+        assertEquals(2, tests.count);
+        assertEquals(0, tests.offsets[0]);
+        assertEquals(source.indexOf("test\nD"), tests.offsets[1]);
+        assertEquals(7, tests.lines[1]);
+    }
+
+    @Test
+    public void testSameProgramAsSequentialParse() throws Exception {
+        for (int tests : new int[] {1, 63, 200, 1000}) {
+            String source = program(tests);
+            String expected = outcome(source, false);
+            assertFalse(expected.contains("Exception"), expected);
+            assertEquals(expected, outcome(source, true), tests + " tests");
+        }
+    }
+
+    @Test
+    public void testSameErrorsAsSequentialParse() {
+        String source = program(1000);
+        int late = source.indexOf("test T900 ");
+        int middle = source.indexOf("test T500 ");
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (String input : new String[] {
+                // Syntax errors, early and late
+                source.replace("test T10 {", "test T10 {{"),
+                source.substring(0, late) + "GET \"/\";\n" + source.substring(late),
+                source.substring(0, late) + "let x = 1;\n" + source.substring(late),
+                // Lexer errors
+                source.substring(0, late) + "test Bad { GET \"/open; }\n" + source.substring(late),
+                source.substring(0, middle) + "test Bad { expect time < 99999999999999999999ms; }\n"
+                    + source.substring(middle),
+                // A test left open at the end of a chunk, and a stray brace
+                source.substring(0, middle) + "test Open {\n  GET \"/\";\n" + source.substring(middle),
+                source.substring(0, middle) + "}\n" + source.substring(middle),
+                // Unexpected end of input
+                source + "test Last {",
+            }) {
+                String expected = outcome(input, false);
+                assertTrue(expected.contains("Exception"), expected);
+                assertEquals(expected, outcome(input, true));
+            }
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    @Test
+    public void testReportsErrorOnce() throws Exception {
+        String source = program(1000);
+        int late = source.indexOf("test T900 ");
+        char[] chars = (source.substring(0, late) + "GET \"/\";\n" + source.substring(late)).toCharArray();
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            ParserException e = assertThrows(ParserException.class,
+                () -> ParallelParser.parse(chars, chars.length, POOL));
+            assertEquals("unexpected GET", e.getContext());
+        } finally {
+            System.setErr(err);
+        }
+        // The detail is carried by the exception; failed chunks print nothing
+        assertEquals("", captured.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStreamingAndSelection(@TempDir Path tempDir) throws Exception {
+        String source = program(300);
+        Path file = tempDir.resolve("input.test");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        TestLangParser.setParallel(true);
+        Program parsed = TestLangParser.parse(file.toString());
+        assertEquals(300, parsed.getTests().size());
+        assertEquals("T299", parsed.getTests().get(299).getName());
+
+        List<Program> headers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Program header = TestLangParser.parse(file.toString(), headers::add,
+            test -> names.add(test.getName()));
+        assertEquals(List.of(header), headers);
+        assertTrue(header.getTests().isEmpty());
+        assertEquals(2, header.getVariables().size());
+        assertEquals(300, names.size());
+        assertEquals("T0", names.get(0));
+        assertEquals("T299", names.get(299));
+    }
+}
@@ -1,6 +1,7 @@
 package com.testlang.parser;
 
 import com.testlang.ast.Assertion;
+import com.testlang.ast.Config;
 import com.testlang.ast.Program;
 import com.testlang.ast.Request;
 import com.testlang.ast.Header;
@@ -12,6 +13,8 @@ import java.io.File;
 import java.io.FileWriter;
 //import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -247,6 +250,250 @@ public class ParserTest {
         assertTrue(assertion.getValue().contains("id"));
     }
 
+    @Test
+    public void testParseResponseTimeAssertion(@TempDir Path tempDir) throws Exception {
+        String input = """
+            test Fast {
+                GET "/api/test";
+                expect time < 250ms;
+                expect time < 2s;
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        com.testlang.ast.Test test = program.getTests().get(0);
+
+        Assertion millis = (Assertion) test.getStatements().get(1);
+        assertEquals(Assertion.Type.RESPONSE_TIME_BELOW, millis.getType());
+        assertEquals(250L, millis.getTimeLimitMillis());
+
+        Assertion seconds = (Assertion) test.getStatements().get(2);
+        assertEquals(2000L, seconds.getTimeLimitMillis());
+
+        // Outside an assertion, time is still a valid variable and test name
+        Program names = parseString("""
+            let time = 5;
+
+            test time {
+                GET "/api/items/$time";
+                expect time < 250ms;
+            }
+            """, tempDir);
+        assertEquals("time", names.getVariables().get(0).getName());
+        assertEquals("time", names.getTests().get(0).getName());
+        assertEquals(Assertion.Type.RESPONSE_TIME_BELOW,
+            ((Assertion) names.getTests().get(0).getStatements().get(1)).getType());
+    }
+
+    @Test
+    public void testParsePercentileAssertion(@TempDir Path tempDir) throws Exception {
+        String input = """
+            test Slo {
+                GET "/api/test";
+                expect status = 200;
+                expect p99 < 50ms over 1000 runs;
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        Assertion slo = (Assertion) program.getTests().get(0).getStatements().get(2);
+        assertEquals(Assertion.Type.PERCENTILE_BELOW, slo.getType());
+        assertEquals(99.0, slo.getPercentile());
+        assertEquals(50L, slo.getTimeLimitMillis());
+        assertEquals(1000, slo.getRuns());
+
+        // Names that look like percentiles are still valid test and variable names
+        Program names = parseString("""
+            let p1 = 5;
+
+            test p2 {
+                GET "/api/items/$p1";
+                expect status = 200;
+                expect p99 < 50ms over 10 runs;
+            }
+            """, tempDir);
+        assertEquals("p1", names.getVariables().get(0).getName());
+        assertEquals("p2", names.getTests().get(0).getName());
+        assertEquals(99.0, ((Assertion) names.getTests().get(0).getStatements().get(2)).getPercentile());
+
+        // So are the words of a percentile assertion
+        Program words = parseString("""
+            let runs = 3;
+
+            test over {
+                GET "/api/items/$runs";
+                expect p99 < 50ms over 10 runs;
+            }
+
+            test runs {
+                GET "/api/items";
+                expect status = 200;
+            }
+            """, tempDir);
+        assertEquals("runs", words.getVariables().get(0).getName());
+        assertEquals("over", words.getTests().get(0).getName());
+        assertEquals(10, ((Assertion) words.getTests().get(0).getStatements().get(1)).getRuns());
+        assertEquals("runs", words.getTests().get(1).getName());
+
+        // The run count is required
+        String withoutRuns = input.replace(" over 1000 runs", "");
+        assertThrows(Exception.class, () -> parseString(withoutRuns, tempDir));
+    }
+
+    @Test
+    public void testParseConfigOptions(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                base_url = "http://localhost:8080";
+                max_body_size = 4096;
+            }
+
+            test Small {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        assertEquals(4096L, program.getConfig().getMaxBodySize());
+        assertNull(program.getConfig().getHttpVersion());
+
+        String transport = input.replace("max_body_size = 4096;", """
+            http_version = "HTTP/2";
+                connect_timeout = 2s;
+                request_timeout = 500ms;
+                executor = "virtual";
+                redirects = "always";
+                warmup = 4;""");
+        Config config = parseString(transport, tempDir).getConfig();
+        assertEquals("HTTP_2", config.getHttpVersion());
+        assertEquals(2000L, config.getConnectTimeoutMillis());
+        assertEquals(500L, config.getRequestTimeoutMillis());
+        assertTrue(config.isVirtualThreads());
+        assertNull(config.getExecutorThreads());
+        assertEquals("ALWAYS", config.getRedirects());
+        assertEquals(4, config.getWarmupRequests());
+
+        assertEquals(16, parseString(transport.replace("\"virtual\"", "16"), tempDir).getConfig().getExecutorThreads());
+        ParserException version = assertThrows(ParserException.class,
+            () -> parseString(transport.replace("HTTP/2", "HTTP/3"), tempDir));
+        assertTrue(version.getMessage().contains("'http_version' must be"));
+        ParserException timeout = assertThrows(ParserException.class,
+            () -> parseString(transport.replace("500ms", "500"), tempDir));
+        assertTrue(timeout.getMessage().contains("'request_timeout' must be a duration"));
+        ParserException warmup = assertThrows(ParserException.class,
+            () -> parseString(transport.replace("warmup = 4", "warmup = 0"), tempDir));
+        assertTrue(warmup.getMessage().contains("'warmup' must be a number of requests"));
+
+        ParserException unknown = assertThrows(ParserException.class,
+            () -> parseString(input.replace("max_body_size", "max_body"), tempDir));
+        assertTrue(unknown.getMessage().contains("Unknown config option 'max_body'"));
+
+        ParserException zero = assertThrows(ParserException.class,
+            () -> parseString(input.replace("4096", "0"), tempDir));
+        assertTrue(zero.getMessage().contains("max_body_size"));
+        assertEquals(3, zero.getLine());
+    }
+
+    @Test
+    public void testParseLoadBlock(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                base_url = "http://localhost:8080";
+            }
+
+            load {
+                users = 200;
+                duration = 60s;
+            }
+
+            test Browse {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+
+        assertEquals(200, program.getLoadConfig().getUsers());
+        assertEquals(60000L, program.getLoadConfig().getDurationMillis());
+        assertEquals(1, program.getTests().size());
+    }
+
+    @Test
+    public void testLoadIsStillAName(@TempDir Path tempDir) throws Exception {
+        String input = """
+            load {
+                users = 2;
+                duration = 1s;
+            }
+
+            let load = 3;
+
+            test load {
+                GET "/api/items/$load";
+                expect status = 200;
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+        assertEquals(2, program.getLoadConfig().getUsers());
+        assertEquals("load", program.getVariables().get(0).getName());
+        assertEquals("load", program.getTests().get(0).getName());
+
+        // Without a load block, a first let or test named load is not mistaken for one
+        Program names = parseString(input.substring(input.indexOf("let")), tempDir);
+        assertNull(names.getLoadConfig());
+        assertEquals("load", names.getTests().get(0).getName());
+    }
+
+    @Test
+    public void testParseArrivalRate(@TempDir Path tempDir) throws Exception {
+        String input = """
+            load {
+                rate = 500/s;
+                duration = 30s;
+            }
+
+            test Browse {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+
+        Program program = parseString(input, tempDir);
+
+        assertEquals(500.0, program.getLoadConfig().getRatePerSecond());
+        assertNull(program.getLoadConfig().getUsers());
+        assertEquals(30000L, program.getLoadConfig().getDurationMillis());
+    }
+
+    @Test
+    public void testParseLoadBlockErrors(@TempDir Path tempDir) {
+        String unknown = """
+            load {
+                users = 10;
+                rampup = 5s;
+            }
+
+            test Browse {
+                GET "/api/test";
+                expect status = 200;
+                expect body contains "ok";
+            }
+            """;
+        ParserException e = assertThrows(ParserException.class, () -> parseString(unknown, tempDir));
+        assertTrue(e.getMessage().contains("Unknown load option 'rampup'"));
+        assertEquals(3, e.getLine());
+
+        String wrongType = unknown.replace("rampup = 5s", "duration = 60");
+        e = assertThrows(ParserException.class, () -> parseString(wrongType, tempDir));
+        assertTrue(e.getMessage().contains("must be a duration"));
+    }
+
     @Test
     public void testParseMultipleTests(@TempDir Path tempDir) throws Exception {
         String input = """
@@ -325,7 +572,51 @@ public class ParserTest {
             }
             """;
 
-        assertThrows(Exception.class, () -> parseString(input, tempDir));
+        ParserException e = assertThrows(ParserException.class, () -> parseString(input, tempDir));
+        assertEquals(3, e.getLine());
+        assertEquals("unexpected EXPECT", e.getContext());
+    }
+
+    @Test
+    public void testStreamingParse(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                base_url = "http://localhost:9090";
+            }
+
+            let id = 7;
+
+            test First {
+                GET "/api/users/$id";
+                expect status = 200;
+                expect body contains "user";
+            }
+
+            test Second {
+                DELETE "/api/users/$id";
+                expect status = 204;
+                expect header "X-App" = "Demo";
+            }
+            """;
+        File testFile = tempDir.resolve("test.test").toFile();
+        try (FileWriter writer = new FileWriter(testFile)) {
+            writer.write(input);
+        }
+
+        List<String> events = new ArrayList<>();
+        Program program = TestLangParser.parse(testFile.getAbsolutePath(),
+            header -> events.add("header " + header.getConfig().getBaseUrl()
+                + " vars=" + header.getVariables().size() + " tests=" + header.getTests().size()),
+            test -> events.add("test " + test.getName() + " " + test.getStatements().size()));
+
+        assertEquals(List.of(
+            "header http://localhost:9090 vars=1 tests=0",
+            "test First 3",
+            "test Second 3"), events);
+
+        // Streamed tests are not collected
+        assertTrue(program.getTests().isEmpty());
+        assertEquals(1, program.getVariables().size());
     }
 
     // Helper method to parse a string input
@@ -0,0 +1,194 @@
+package com.testlang.parser;
+
+import com.testlang.ast.Assertion;
+import com.testlang.ast.Program;
+import com.testlang.ast.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the content-hash keyed parse cache
+ */
+public class ProgramCacheTest {
+
+    private static final String VALID = """
+        config {
+            base_url = "http://localhost:9090";
+            header "Content-Type" = "application/json";
+            max_body_size = 65536;
+            http_version = "HTTP/2";
+            request_timeout = 3s;
+            executor = 8;
+            warmup = 2;
+        }
+
+        let user = "admin";
+        let id = 42;
+
+        test CreateUser {
+            POST "/api/users/$id" {
+                header "X-User" = "$user";
+                body = "{ \\"name\\": \\"$user\\" }";
+            };
+            expect status = 201;
+            expect header "Content-Type" contains "json";
+            expect body contains "$user";
+            expect p99.9 < 50ms over 100 runs;
+        }
+        """;
+
+    @AfterEach
+    public void tearDown() {
+        TestLangParser.setCache(null);
+    }
+
+    @Test
+    public void testRoundTripPreservesProgram(@TempDir Path tempDir) throws Exception {
+        File testFile = writeFile(tempDir, VALID);
+        ProgramCache cache = new ProgramCache(tempDir.resolve("cache"));
+        TestLangParser.setCache(cache);
+
+        Program parsed = TestLangParser.parse(testFile.getAbsolutePath());
+        Program cached = cache.load(ProgramCache.key(Files.readAllBytes(testFile.toPath())));
+
+        assertNotNull(cached);
+        assertTrue(cached.isValidated());
+        assertEquals(parsed.getConfig().getBaseUrl(), cached.getConfig().getBaseUrl());
+        assertEquals(1, cached.getConfig().getHeaders().size());
+        assertEquals(65536L, cached.getConfig().getMaxBodySize());
+        assertEquals("HTTP_2", cached.getConfig().getHttpVersion());
+        assertEquals(3000L, cached.getConfig().getRequestTimeoutMillis());
+        assertNull(cached.getConfig().getConnectTimeoutMillis());
+        assertEquals(8, cached.getConfig().getExecutorThreads());
+        assertEquals(2, cached.getConfig().getWarmupRequests());
+        assertFalse(cached.getConfig().isVirtualThreads());
+        assertNull(cached.getConfig().getRedirects());
+        assertEquals(2, cached.getVariables().size());
+        assertEquals(42, cached.getVariables().get(1).getValue());
+
+        Request request = (Request) cached.getTests().get(0).getStatements().get(0);
+        assertEquals("POST", request.getMethod());
+        assertEquals("/api/users/$id", request.getUrl());
+        assertEquals("X-User", request.getHeaders().get(0).getKey());
+        assertEquals("{ \"name\": \"$user\" }", request.getBody());
+
+        Assertion status = (Assertion) cached.getTests().get(0).getStatements().get(1);
+        assertEquals(Assertion.Type.STATUS_EQUALS, status.getType());
+        assertEquals(201, status.getStatusCode());
+
+        Assertion percentile = (Assertion) cached.getTests().get(0).getStatements().get(4);
+        assertEquals(Assertion.Type.PERCENTILE_BELOW, percentile.getType());
+        assertEquals(99.9, percentile.getPercentile());
+        assertEquals(50L, percentile.getTimeLimitMillis());
+        assertEquals(100, percentile.getRuns());
+        assertNull(status.getPercentile());
+    }
+
+    @Test
+    public void testDamagedEntryFallsBackToParsing(@TempDir Path tempDir) throws Exception {
+        File testFile = writeFile(tempDir, VALID);
+        Path cacheDir = tempDir.resolve("cache");
+        TestLangParser.setCache(new ProgramCache(cacheDir));
+
+        TestLangParser.parse(testFile.getAbsolutePath());
+        String key = ProgramCache.key(Files.readAllBytes(testFile.toPath()));
+        assertTrue(Files.exists(cacheDir.resolve(key + ".ast")));
+
+        // A damaged entry is a miss, so the file is parsed again
+        Files.write(cacheDir.resolve(key + ".ast"), "garbage".getBytes(StandardCharsets.UTF_8));
+        Program program = TestLangParser.parse(testFile.getAbsolutePath());
+        assertEquals("CreateUser", program.getTests().get(0).getName());
+    }
+
+    @Test
+    public void testOversizedLengthIsAMiss(@TempDir Path tempDir) throws Exception {
+        File testFile = writeFile(tempDir, VALID);
+        Path cacheDir = tempDir.resolve("cache");
+        TestLangParser.setCache(new ProgramCache(cacheDir));
+        TestLangParser.parse(testFile.getAbsolutePath());
+        String key = ProgramCache.key(Files.readAllBytes(testFile.toPath()));
+
+        // The base_url length follows the magic number and the config flag
+        Path entry = cacheDir.resolve(key + ".ast");
+        byte[] bytes = Files.readAllBytes(entry);
+        ByteBuffer.wrap(bytes).putInt(5, Integer.MAX_VALUE - 8);
+        Files.write(entry, bytes);
+
+        assertNull(new ProgramCache(cacheDir).load(key));
+        Files.write(entry, Arrays.copyOf(bytes, 12));
+        assertNull(new ProgramCache(cacheDir).load(key));
+    }
+
+    @Test
+    public void testCacheHitReplaysWarnings(@TempDir Path tempDir) throws Exception {
+        File testFile = writeFile(tempDir, VALID.replace("let id = 42;", "let id = 42;\nlet unused = 1;"));
+        ProgramCache cache = new ProgramCache(tempDir.resolve("cache"));
+        TestLangParser.setCache(cache);
+        TestLangParser.parse(testFile.getAbsolutePath());
+
+        ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+        Program cached = cache.load(ProgramCache.key(Files.readAllBytes(testFile.toPath())),
+            new PrintStream(warnings, true, StandardCharsets.UTF_8));
+
+        assertNotNull(cached);
+        assertEquals("Warning: Variable 'unused' is declared but never used" + System.lineSeparator(),
+            warnings.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChangedSourceMissesCache(@TempDir Path tempDir) throws Exception {
+        File testFile = writeFile(tempDir, VALID);
+        TestLangParser.setCache(new ProgramCache(tempDir.resolve("cache")));
+        TestLangParser.parse(testFile.getAbsolutePath());
+
+        writeFile(tempDir, VALID.replace("CreateUser", "AddUser"));
+        Program program = TestLangParser.parse(testFile.getAbsolutePath());
+        assertEquals("AddUser", program.getTests().get(0).getName());
+    }
+
+    @Test
+    public void testInvalidProgramIsNotCached(@TempDir Path tempDir) throws Exception {
+        File testFile = writeFile(tempDir, """
+            test TooFewAssertions {
+                GET "/api/test";
+                expect status = 200;
+            }
+            """);
+        Path cacheDir = tempDir.resolve("cache");
+        TestLangParser.setCache(new ProgramCache(cacheDir));
+
+        Program program = TestLangParser.parse(testFile.getAbsolutePath());
+
+        assertFalse(program.isValidated());
+        assertNull(new ProgramCache(cacheDir).load(ProgramCache.key(Files.readAllBytes(testFile.toPath()))));
+    }
+
+    @Test
+    public void testKeyDependsOnSourceBytes() {
+        byte[] source = VALID.getBytes(StandardCharsets.UTF_8);
+        assertEquals(ProgramCache.key(source), ProgramCache.key(source.clone()));
+        assertNotEquals(ProgramCache.key(source), ProgramCache.key(new byte[0]));
+        assertEquals(64, ProgramCache.key(source).length());
+    }
+
+    private File writeFile(Path tempDir, String input) throws Exception {
+        File testFile = tempDir.resolve("test.test").toFile();
+        try (FileWriter writer = new FileWriter(testFile)) {
+            writer.write(input);
+        }
+        return testFile;
+    }
+}
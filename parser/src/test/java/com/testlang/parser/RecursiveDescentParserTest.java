@@ -0,0 +1,206 @@
+package com.testlang.parser;
+
+import com.testlang.ast.Program;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests: the hand-written parser must build the same Program as the generated
+ * one, and fail on the same inputs with the same error and line
+ */
+public class RecursiveDescentParserTest {
+
+    @AfterEach
+    public void tearDown() {
+        TestLangParser.setRecursiveDescent(false);
+    }
+
+    /**
+     * A random program using every construct of the grammar
+     */
+    private static String randomProgram(long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        if (random.nextBoolean()) {
+            sb.append("config {\n");
+            sb.append("    base_url = \"http://localhost:").append(8000 + random.nextInt(100)).append("\";\n");
+            sb.append("    header \"X-Run\" = \"r").append(random.nextInt(100)).append("\";\n");
+            if (random.nextBoolean()) {
+                sb.append("    request_timeout = ").append(1 + random.nextInt(5)).append("s;\n");
+                sb.append("    executor = \"virtual\";\n");
+                sb.append("    max_body_size = 4096;\n");
+            }
+            sb.append("}\n\n");
+        }
+        if (random.nextBoolean()) {
+            sb.append("load {\n");
+            sb.append(random.nextBoolean() ? "    users = 5;\n" : "    rate = 20/m;\n");
+            sb.append("    duration = 500ms;\n");
+            sb.append("}\n\n");
+        }
+        int variables = random.nextInt(3);
+        for (int i = 0; i < variables; i++) {
+            sb.append(i % 2 == 0 ? "let v" + i + " = \"a\\\"b\";\n" : "let v" + i + " = " + i + ";\n");
+        }
+
+        int tests = 1 + random.nextInt(3);
+        for (int t = 0; t < tests; t++) {
+            // load is a keyword only where a load block can start
+            sb.append("\ntest ").append(t == 0 && random.nextBoolean() ? "load" : "T" + t).append(" {\n");
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append("    GET \"/api/users/$v0\";\n");
+                    break;
+                case 1:
+                    sb.append("    DELETE \"/api/users/1\";\n");
+                    break;
+                case 2:
+                    sb.append("    POST \"/api/users\" {\n");
+                    sb.append("        header \"Content-Type\" = \"application/json\";\n");
+                    sb.append("        body = \"{ \\\"name\\\": \\\"x\\\" }\";\n");
+                    sb.append("    };\n");
+                    break;
+                default:
+                    sb.append("    PUT \"/api/users/1\" {};\n");
+            }
+            sb.append("    expect status = 200;\n");
+            sb.append("    expect header \"Content-Type\" ").append(random.nextBoolean() ? "=" : "contains")
+                .append(" \"json\";\n");
+            sb.append("    expect body contains \"id\";\n");
+            sb.append("    expect time < 250ms;\n");
+            sb.append("    expect p99.9 < 1s over 20 runs;\n");
+            sb.append("}\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The serialized Program, or a description of the exception
+     */
+    private static String outcome(String source, boolean descent) {
+        try {
+            Lexer lexer = new Lexer(new StringReader(source));
+            Program program = descent
+                ? new RecursiveDescentParser(lexer).parse()
+                : (Program) new parser(lexer).parse().value;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ProgramCache.write(new DataOutputStream(bytes), program);
+            return Arrays.toString(bytes.toByteArray());
+        } catch (ParserException e) {
+            return "ParserException at line " + e.getLine() + ": " + e.getMessage();
+        } catch (Exception e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static void assertSameOutcome(String source) {
+        assertEquals(outcome(source, false), outcome(source, true), source);
+    }
+
+    @Test
+    public void testSameProgramForValidInput() {
+        for (long seed = 0; seed < 50; seed++) {
+            String source = randomProgram(seed);
+            String expected = outcome(source, false);
+            assertFalse(expected.contains("Exception"), expected);
+            assertEquals(expected, outcome(source, true), source);
+        }
+    }
+
+    @Test
+    public void testSameErrorsForMutatedInput() throws Exception {
+        // Every way of dropping, doubling or swapping one token, with the syntax error
+        // reports of both parsers discarded
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (long seed = 0; seed < 8; seed++) {
+                String source = randomProgram(seed);
+                TokenStream tokens = TokenStream.tokenize(new StringReader(source));
+                for (int i = 0; i < tokens.size(); i++) {
+                    int start = tokens.start(i);
+                    int end = start + tokens.length(i);
+                    String token = source.substring(start, end);
+                    assertSameOutcome(source.substring(0, start) + source.substring(end));
+                    assertSameOutcome(source.substring(0, end) + " " + token + source.substring(end));
+                    assertSameOutcome(source.substring(0, start) + ";" + source.substring(end));
+                    if (i + 1 < tokens.size()) {
+                        int nextStart = tokens.start(i + 1);
+                        int nextEnd = nextStart + tokens.length(i + 1);
+                        assertSameOutcome(source.substring(0, start) + source.substring(nextStart, nextEnd)
+                            + source.substring(end, nextStart) + token + source.substring(nextEnd));
+                    }
+                }
+            }
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    @Test
+    public void testSemanticErrors() {
+        String valid = randomProgram(3);
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (String input : new String[] {
+                "config {\n  max_body_size = 0;\n}\ntest A { GET \"/\"; }",
+                "config {\n  warmup = 2;\n  bogus = 1;\n}\ntest A { GET \"/\"; }",
+                "config {\n  redirects = \"sometimes\";\n  let\n}\ntest A { GET \"/\"; }",
+                "load {\n  users = 1s;\n}\ntest A { GET \"/\"; }",
+                "load {\n  users = 2;\n  duration = 5;\n}\ntest A { GET \"/\"; }",
+                "test A { GET \"/\"; }\nlet x = 1;",
+                "test A { POST \"/\"; }",
+                "test A { GET \"/\"; } }",
+                "",
+                valid + "\ntest",
+            }) {
+                String outcome = outcome(input, false);
+                assertTrue(outcome.contains("Exception"), outcome);
+                assertEquals(outcome, outcome(input, true), input);
+            }
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    @Test
+    public void testStreamingAndSelection(@TempDir Path tempDir) throws Exception {
+        String source = randomProgram(7);
+        List<Program> headers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        RecursiveDescentParser streaming = new RecursiveDescentParser(new Lexer(new StringReader(source)));
+        streaming.setHeaderConsumer(headers::add);
+        streaming.setTestConsumer(test -> names.add(test.getName()));
+        Program header = streaming.parse();
+        assertEquals(List.of(header), headers);
+        assertTrue(header.getTests().isEmpty());
+
+        Path file = tempDir.resolve("input.test");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        TestLangParser.setRecursiveDescent(true);
+        Program parsed = TestLangParser.parse(file.toString());
+        List<String> parsedNames = new ArrayList<>();
+        for (com.testlang.ast.Test test : parsed.getTests()) {
+            parsedNames.add(test.getName());
+        }
+        assertEquals(names, parsedNames);
+        assertEquals(outcome(source, false), outcome(source, true));
+    }
+}
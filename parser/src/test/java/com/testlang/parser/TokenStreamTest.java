@@ -0,0 +1,93 @@
+package com.testlang.parser;
+
+import com.testlang.ast.Program;
+import com.testlang.codegen.CodeGenerator;
+import java_cup.runtime.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for tokenizing into parallel arrays instead of Symbols
+ */
+public class TokenStreamTest {
+
+    private static final String PROGRAM = """
+        config {
+            base_url = "http://localhost:8080";
+            header "Content-Type" = "application/json";
+        }
+
+        load {
+            rate = 30/m;
+            duration = 10s;
+        }
+
+        let id = 42;
+
+        test GetUser {
+            GET "/api/users/$id";
+            expect status = 200;
+            expect body contains "\\"name\\"";
+            expect time < 250ms;
+            expect p99.9 < 2s over 100 runs;
+        }
+        """;
+
+    @Test
+    public void testMatchesLexerSymbols() throws Exception {
+        TokenStream tokens = TokenStream.tokenize(new StringReader(PROGRAM));
+        Lexer lexer = new Lexer(new StringReader(PROGRAM));
+
+        int index = 0;
+        Symbol symbol;
+        while ((symbol = lexer.next_token()).sym != sym.EOF) {
+            assertEquals(symbol.sym, tokens.kind(index), "kind of token " + index);
+            assertEquals(symbol.left, tokens.line(index));
+            assertEquals(symbol.right, tokens.column(index));
+            assertEquals(symbol.value, tokens.value(index));
+            index++;
+        }
+        assertEquals(index, tokens.size());
+    }
+
+    @Test
+    public void testOffsetsAndLazyValues() throws Exception {
+        TokenStream tokens = TokenStream.tokenize(new StringReader("let id = 42;\nlet s = \"a\\\\b\";"));
+        assertEquals(10, tokens.size());
+        assertEquals(sym.NUMBER, tokens.kind(3));
+        assertEquals(9, tokens.start(3));
+        assertEquals(2, tokens.length(3));
+        assertEquals("42", tokens.text(3).toString());
+        assertEquals(42, tokens.intValue(3));
+        assertThrows(IllegalArgumentException.class, () -> tokens.intValue(1));
+
+        assertEquals(2, tokens.line(8));
+        assertEquals("\"a\\\\b\"", tokens.text(8).toString());
+        assertEquals("a\\b", tokens.value(8));
+        assertNull(tokens.value(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokens.kind(10));
+    }
+
+    @Test
+    public void testValueErrorsAreDeferred() throws Exception {
+        TokenStream tokens = TokenStream.tokenize(new StringReader("expect time < 99999999999999999999ms;"));
+        assertEquals(sym.DURATION, tokens.kind(3));
+        LexerException e = assertThrows(LexerException.class, () -> tokens.value(3));
+        assertTrue(e.getMessage().contains("Duration is too large"));
+
+        // Malformed input still fails while tokenizing
+        assertThrows(LexerException.class, () -> TokenStream.tokenize(new StringReader("let x = \"open;")));
+    }
+
+    @Test
+    public void testParserRunsOverStream() throws Exception {
+        TokenStream tokens = TokenStream.tokenize(new StringReader(PROGRAM));
+        Program fromStream = (Program) new parser(tokens.scanner()).parse().value;
+        Program fromLexer = (Program) new parser(new Lexer(new StringReader(PROGRAM))).parse().value;
+
+        assertEquals(new CodeGenerator(fromLexer).generate(), new CodeGenerator(fromStream).generate());
+    }
+}
@@ -0,0 +1,200 @@
+package com.testlang.runtime;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the multi-pattern body matcher
+ */
+public class BodyMatcherTest {
+
+    @Test
+    public void testFindsEachNeedle() {
+        BodyMatcher matcher = new BodyMatcher("token", "user", "missing", "use");
+        boolean[] found = matcher.match(bytes("{\"token\": \"abc\", \"username\": \"admin\"}"));
+
+        assertArrayEquals(new boolean[] {true, true, false, true}, found);
+    }
+
+    @Test
+    public void testOverlappingAndNestedNeedles() {
+        // "she" ends inside "ushers", and "he" and "hers" are found through failure links
+        BodyMatcher matcher = new BodyMatcher("he", "she", "his", "hers", "ushers");
+        assertArrayEquals(new boolean[] {true, true, false, true, true}, matcher.match(bytes("ushers")));
+
+        // Repeated prefixes must fall back to the longest proper suffix
+        assertArrayEquals(new boolean[] {true}, new BodyMatcher("aab").match(bytes("aaab")));
+    }
+
+    @Test
+    public void testEmptyAndDuplicateNeedles() {
+        BodyMatcher matcher = new BodyMatcher("", "ok", "ok");
+        assertArrayEquals(new boolean[] {true, false, false}, matcher.match(new byte[0]));
+        assertArrayEquals(new boolean[] {true, true, true}, matcher.match(bytes("ok")));
+    }
+
+    @Test
+    public void testMatchesUtf8Bytes() {
+        BodyMatcher matcher = new BodyMatcher("naïve", "日本", "ñ");
+        assertArrayEquals(new boolean[] {true, true, false}, matcher.match(bytes("a naïve 日本語 body")));
+    }
+
+    @Test
+    public void testScanAcrossPieces() {
+        BodyMatcher matcher = new BodyMatcher("boundary", "x");
+        BodyMatcher.Scan scan = matcher.newScan();
+        byte[] body = bytes("split boundary here");
+
+        scan.update(body, 0, 9);   // "split bou"
+        assertFalse(scan.getFound()[0]);
+        scan.update(body, 9, body.length - 9);
+        assertArrayEquals(new boolean[] {true, false}, scan.getFound());
+        assertFalse(scan.isComplete());
+
+        scan.update(bytes("x"), 0, 1);
+        assertTrue(scan.isComplete());
+    }
+
+    @Test
+    public void testAgreesWithStringContains() {
+        Random random = new Random(7);
+        String[] needles = {"ab", "bab", "abba", "b", "aaaa", "baab"};
+        BodyMatcher matcher = new BodyMatcher(needles);
+        for (int round = 0; round < 500; round++) {
+            StringBuilder body = new StringBuilder();
+            for (int i = random.nextInt(12); i > 0; i--) {
+                body.append(random.nextBoolean() ? 'a' : 'b');
+            }
+            boolean[] found = matcher.match(bytes(body.toString()));
+            for (int i = 0; i < needles.length; i++) {
+                assertEquals(body.toString().contains(needles[i]), found[i], needles[i] + " in " + body);
+            }
+        }
+    }
+
+    @Test
+    public void testBytesOutsideTheNeedlesShareAClass() {
+        // Needles over a few byte values, bodies over all 256, so most body bytes are in no needle
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            String[] needles = new String[1 + random.nextInt(4)];
+            for (int i = 0; i < needles.length; i++) {
+                char[] chars = new char[1 + random.nextInt(3)];
+                for (int j = 0; j < chars.length; j++) {
+                    chars[j] = "xyé".charAt(random.nextInt(3));
+                }
+                needles[i] = new String(chars);
+            }
+            byte[] body = new byte[random.nextInt(40)];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = random.nextInt(3) == 0 ? bytes("xyé")[random.nextInt(4)] : (byte) random.nextInt(256);
+            }
+
+            boolean[] found = new BodyMatcher(needles).match(body);
+            for (int i = 0; i < needles.length; i++) {
+                assertEquals(indexOf(body, bytes(needles[i])) >= 0, found[i], needles[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testBodyHandlerStopsReadingOnceAllNeedlesAreFound() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stream", exchange -> {
+            // Chunked body whose needles arrive early, followed by a long stall
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes("{\"status\": \"rea"));
+                body.flush();
+                body.write(bytes("dy\", \"items\": ["));
+                body.flush();
+                Thread.sleep(2000);
+                body.write(bytes("]}"));
+            } catch (InterruptedException | IOException e) {
+                // The client hung up, as intended
+            }
+        });
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/stream")).build();
+            BodyMatcher matcher = new BodyMatcher("ready", "items");
+
+            long start = System.nanoTime();
+            HttpResponse<boolean[]> response = client.send(request, matcher.bodyHandler());
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertArrayEquals(new boolean[] {true, true}, response.body());
+            assertArrayEquals(new boolean[] {true, true}, matcher.match(response));
+            assertTrue(elapsedMillis < 1500, "waited " + elapsedMillis + " ms for the whole body");
+
+            // A needle that never appears means the whole body is read
+            HttpResponse<boolean[]> missing = client.send(request, new BodyMatcher("ready", "nope").bodyHandler());
+            assertArrayEquals(new boolean[] {true, false}, missing.body());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testBodyHandlerKeepsTheConnectionForShortBodies() throws Exception {
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        byte[] payload = bytes("{\"status\": \"ready\", \"items\": [" + "0,".repeat(2000) + "0]}");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/short", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(payload);
+            }
+        });
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/short")).build();
+            BodyMatcher matcher = new BodyMatcher("ready");
+
+            for (int i = 0; i < 20; i++) {
+                assertArrayEquals(new boolean[] {true}, client.send(request, matcher.bodyHandler()).body());
+            }
+            // The next send may start before the rest is drained, but most reuse the connection
+            assertTrue(clientPorts.size() <= 5, "opened " + clientPorts.size() + " connections");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static int indexOf(byte[] body, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= body.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (body[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+package com.testlang.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HttpClient executors
+ */
+public class ClientExecutorsTest {
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testVirtualStartsAThreadPerTask() throws Exception {
+        ExecutorService executor = ClientExecutors.virtual();
+        try {
+            Thread first = executor.submit(Thread::currentThread).get();
+            Thread second = executor.submit(Thread::currentThread).get();
+
+            // Virtual threads are never reused; the pre-21 fallback is a pool of daemon threads
+            if (isVirtual(first)) {
+                assertNotSame(first, second);
+                assertTrue(isVirtual(second));
+            } else {
+                assertTrue(first.isDaemon());
+                assertTrue(first.getName().startsWith("testlang-client-"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.testlang.runtime;
+
+import com.sun.net.httpserver.HttpServer;
+import com.testlang.ast.Program;
+import com.testlang.parser.TestLangParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the AST interpreter, run against a local in-process HTTP server
+ */
+public class InterpreterTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger echoes = new AtomicInteger();
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/users/42", exchange -> {
+            byte[] body = "{\"id\":42,\"role\":\"USER\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            String app = exchange.getRequestHeaders().getFirst("X-App");
+            if (app != null) {
+                exchange.getResponseHeaders().add("X-App", app);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/api/echo", exchange -> {
+            echoes.incrementAndGet();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(201, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testPassingTests(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                base_url = "%s";
+                header "X-App" = "Demo";
+            }
+
+            let id = 42;
+            let role = "ADMIN";
+
+            test GetUser {
+                GET "/api/users/$id";
+                expect status = 200;
+                expect header "Content-Type" contains "json";
+                expect header "X-App" = "Demo";
+                expect body contains "\\"id\\":42";
+            }
+
+            test Echo {
+                POST "/api/echo" {
+                    body = "{ \\"role\\": \\"$role\\" }";
+                };
+                expect status = 201;
+                expect body contains "ADMIN";
+            }
+            """.formatted(baseUrl);
+
+        List<TestResult> results = new Interpreter(parseString(input, tempDir)).run();
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isPassed(), results.get(0).getMessage());
+        assertTrue(results.get(1).isPassed(), results.get(1).getMessage());
+        assertTrue(TestReport.allPassed(results));
+    }
+
+    @Test
+    public void testFailingAssertions(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                base_url = "%s";
+            }
+
+            test WrongStatus {
+                GET "/api/users/42";
+                expect status = 404;
+                expect body contains "id";
+            }
+
+            test MissingBody {
+                GET "/api/users/42";
+                expect status = 200;
+                expect body contains "nothing-like-this";
+            }
+            """.formatted(baseUrl);
+
+        List<TestResult> results = new Interpreter(parseString(input, tempDir)).run();
+
+        assertFalse(results.get(0).isPassed());
+        assertTrue(results.get(0).getMessage().contains("404"));
+        assertFalse(results.get(1).isPassed());
+        assertTrue(results.get(1).getMessage().contains("nothing-like-this"));
+        assertFalse(TestReport.allPassed(results));
+    }
+
+    @Test
+    public void testResponseTimeAssertion(@TempDir Path tempDir) throws Exception {
+        server.createContext("/api/slow", exchange -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        String input = """
+            config {
+                base_url = "%s";
+            }
+
+            test Fast {
+                GET "/api/users/42";
+                expect status = 200;
+                expect time < 5s;
+            }
+
+            test Slow {
+                GET "/api/slow";
+                expect status = 200;
+                expect time < 100ms;
+            }
+            """.formatted(baseUrl);
+
+        List<TestResult> results = new Interpreter(parseString(input, tempDir)).run();
+
+        assertTrue(results.get(0).isPassed(), results.get(0).getMessage());
+        assertFalse(results.get(1).isPassed());
+        assertTrue(results.get(1).getMessage().startsWith("expected response time below <100 ms> but was <"));
+    }
+
+    @Test
+    public void testPercentileAssertion(@TempDir Path tempDir) throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/api/flaky", exchange -> {
+            // One call in ten is slow, which p50 tolerates and p99 does not
+            if (calls.incrementAndGet() % 10 == 0) {
+                try {
+                    Thread.sleep(150);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        String input = """
+            config {
+                base_url = "%s";
+            }
+
+            test Median {
+                GET "/api/flaky";
+                expect status = 200;
+                expect p50 < 100ms over 20 runs;
+            }
+
+            test Tail {
+                GET "/api/flaky";
+                expect status = 200;
+                expect p99 < 100ms over 20 runs;
+            }
+            """.formatted(baseUrl);
+
+        List<TestResult> results = new Interpreter(parseString(input, tempDir)).run();
+
+        assertTrue(results.get(0).isPassed(), results.get(0).getMessage());
+        assertFalse(results.get(1).isPassed());
+        assertTrue(results.get(1).getMessage().startsWith("expected p99 below <100 ms> over 20 runs but was <"));
+        // One plain send plus 2 warmup and 20 measured runs per test
+        assertEquals(46, calls.get());
+    }
+
+    @Test
+    public void testClientOptions(@TempDir Path tempDir) throws Exception {
+        server.createContext("/api/moved", exchange -> {
+            exchange.getResponseHeaders().add("Location", "/api/users/42");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/api/slow", exchange -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        String tests = """
+            test Moved {
+                GET "/api/moved";
+                expect status = 200;
+                expect body contains "USER";
+            }
+
+            test Slow {
+                GET "/api/slow";
+                expect status = 200;
+                expect header "Content-Type" = "";
+            }
+            """;
+        String tuned = """
+            config {
+                base_url = "%s";
+                redirects = "normal";
+                request_timeout = 100ms;
+                executor = 2;
+            }
+
+            """.formatted(baseUrl) + tests;
+        String plain = """
+            config {
+                base_url = "%s";
+            }
+
+            """.formatted(baseUrl) + tests;
+
+        List<TestResult> results = new Interpreter(parseString(tuned, tempDir)).run();
+        assertTrue(results.get(0).isPassed(), results.get(0).getMessage());
+        assertFalse(results.get(1).isPassed());
+        assertTrue(results.get(1).getMessage().contains("HttpTimeoutException"), results.get(1).getMessage());
+
+        // Redirects are not followed and requests wait 10 s by default
+        results = new Interpreter(parseString(plain, tempDir)).run();
+        assertTrue(results.get(0).getMessage().contains("<302>"), results.get(0).getMessage());
+        assertTrue(results.get(1).isPassed(), results.get(1).getMessage());
+    }
+
+    @Test
+    public void testWarmup(@TempDir Path tempDir) throws Exception {
+        AtomicInteger heads = new AtomicInteger();
+        server.createContext("/", exchange -> {
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                heads.incrementAndGet();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        String input = """
+            config {
+                base_url = "%s";
+                warmup = 3;
+            }
+
+            test GetUser {
+                GET "/api/users/42";
+                expect status = 200;
+            }
+            """.formatted(baseUrl);
+
+        // The connections are warmed up before any test runs
+        Interpreter interpreter = new Interpreter(parseString(input, tempDir));
+        assertEquals(3, heads.get());
+        assertTrue(interpreter.run().get(0).isPassed());
+        assertEquals(3, heads.get());
+    }
+
+    @Test
+    public void testMaxBodySize(@TempDir Path tempDir) throws Exception {
+        server.createContext("/api/huge", exchange -> {
+            byte[] chunk = new byte[64 * 1024];
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 64; i++) {
+                    body.write(chunk);
+                }
+            } catch (IOException e) {
+                // The client stopped reading
+            }
+        });
+        String input = """
+            config {
+                base_url = "%s";
+                max_body_size = 100000;
+            }
+
+            test Huge {
+                GET "/api/huge";
+                expect status = 200;
+                expect body contains "x";
+            }
+
+            test StatusOnly {
+                GET "/api/huge";
+                expect status = 200;
+                expect header "Content-Type" = "";
+            }
+            """.formatted(baseUrl);
+
+        List<TestResult> results = new Interpreter(parseString(input, tempDir)).run();
+
+        assertFalse(results.get(0).isPassed());
+        assertTrue(results.get(0).getMessage().contains("Response body is larger than max_body_size (100000 bytes)"),
+            results.get(0).getMessage());
+        // A body no assertion reads is discarded, whatever its size
+        assertTrue(results.get(1).isPassed(), results.get(1).getMessage());
+    }
+
+    @Test
+    public void testConnectionFailureIsReported(@TempDir Path tempDir) throws Exception {
+        server.stop(0);
+        String input = """
+            config {
+                base_url = "%s";
+            }
+
+            test Unreachable {
+                GET "/api/users/42";
+                expect status = 200;
+                expect body contains "id";
+            }
+            """.formatted(baseUrl);
+
+        TestResult result = new Interpreter(parseString(input, tempDir)).run().get(0);
+
+        assertFalse(result.isPassed());
+        assertNotNull(result.getMessage());
+    }
+
+    @Test
+    public void testRunChecksWholeFileBeforeSending(@TempDir Path tempDir) throws Exception {
+        String input = """
+            config {
+                base_url = "%s";
+            }
+
+            test Create {
+                POST "/api/echo" {
+                    body = "created";
+                };
+                expect status = 201;
+                expect body contains "created";
+            }
+
+            test Broken {
+                GET "/api/users/42"
+                expect status = 200;
+            }
+            """.formatted(baseUrl);
+        Files.writeString(tempDir.resolve("broken.test"), input);
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+
+        // The syntax error is found before the POST of the first test is sent
+        assertEquals(1, TestLangParser.run(new String[] {"--run", "broken.test"}, tempDir, out, err));
+        assertEquals(0, echoes.get());
+
+        // Streaming runs each test as it is parsed, so the POST goes out first
+        assertEquals(1, TestLangParser.run(new String[] {"--run", "--stream", "broken.test"}, tempDir, out, err));
+        assertEquals(1, echoes.get());
+    }
+
+    // Helper methods
+    private Program parseString(String input, Path tempDir) throws Exception {
+        File testFile = tempDir.resolve("test.test").toFile();
+        try (FileWriter writer = new FileWriter(testFile)) {
+            writer.write(input);
+        }
+        return TestLangParser.parse(testFile.getAbsolutePath());
+    }
+}
@@ -0,0 +1,126 @@
+package com.testlang.runtime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the latency histogram and its JSON report
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        // Buckets are contiguous: each starts one past the end of the previous one
+        long expected = 0;
+        for (int i = 0; i <= LatencyHistogram.index((1L << 32) - 1); i++) {
+            assertEquals(i, LatencyHistogram.index(expected), "bucket start " + expected);
+            long highest = LatencyHistogram.highestMicros(i);
+            assertEquals(i, LatencyHistogram.index(highest), "bucket end " + highest);
+            // Width stays within 1/64 of the value
+            assertTrue(highest - expected <= Math.max(1, expected / 64));
+            expected = highest + 1;
+        }
+        assertEquals(1L << 32, expected);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        // 1 ms to 1000 ms, one measurement each
+        for (int ms = 1000; ms >= 1; ms--) {
+            histogram.record(ms * 1_000_000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMeanNanos() / 1_000_000, 0.001);
+        assertEquals(1_000_000_000L, histogram.getMaxNanos());
+        assertWithinPrecision(500, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(900, histogram.getValueAtPercentile(90));
+        assertWithinPrecision(990, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(999, histogram.getValueAtPercentile(99.9));
+        assertEquals(1_000_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram empty = new LatencyHistogram();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMeanNanos());
+        assertEquals(0, empty.getMaxNanos());
+        assertEquals(0, empty.getValueAtPercentile(50));
+
+        // Merging an empty histogram either way keeps the counts
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2_000_000);
+        histogram.add(empty);
+        empty.add(new LatencyHistogram());
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, empty.getCount());
+        empty.add(histogram);
+        assertEquals(1, empty.getCount());
+        assertEquals(2_000_000, empty.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testConcurrentRecordingAndMerge() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long nanos = (t + 1) * 1_000_000L;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(nanos);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(4_000_000L, histogram.getMaxNanos());
+
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.record(9_000_000L);
+        merged.add(histogram);
+        assertEquals(40_001, merged.getCount());
+        assertEquals(9_000_000L, merged.getMaxNanos());
+        assertWithinPrecision(4, merged.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testJsonReport(@TempDir Path tempDir) throws Exception {
+        LatencyHistogram login = LatencyRecorder.histogram("ReportTests", "Login", "POST /api/login");
+        LatencyHistogram user = LatencyRecorder.histogram("ReportTests", "Login", "GET /api/users/\"me\"");
+        assertSame(login, LatencyRecorder.histogram("ReportTests", "Login", "POST /api/login"));
+        login.record(2_000_000L);
+        user.record(4_000_000L);
+
+        Path report = tempDir.resolve("latency.json");
+        LatencyRecorder.writeReport(report);
+        String json = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+
+        assertTrue(json.contains("\"unit\": \"ms\""));
+        assertTrue(json.contains("{\"class\": \"ReportTests\", \"test\": \"Login\", \"count\": 2, \"mean\": 3.000, "));
+        assertTrue(json.contains("{\"request\": \"POST /api/login\", \"count\": 1, \"mean\": 2.000, \"p50\": 2.000, "
+            + "\"p90\": 2.000, \"p99\": 2.000, \"p99.9\": 2.000, \"max\": 2.000}"));
+        assertTrue(json.contains("{\"request\": \"GET /api/users/\\\"me\\\"\", \"count\": 1"));
+    }
+
+    private static void assertWithinPrecision(long expectedMillis, long actualNanos) {
+        double actual = actualNanos / 1_000_000.0;
+        assertTrue(actual >= expectedMillis && actual <= expectedMillis * (1 + 1 / 64.0),
+            "expected about " + expectedMillis + " ms but was " + actual);
+    }
+}
@@ -0,0 +1,155 @@
+package com.testlang.runtime;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the closed-model load driver
+ */
+public class LoadRunnerTest {
+
+    /**
+     * Stand-in for a generated test class
+     */
+    static class SampleTests {
+        static final AtomicInteger setups = new AtomicInteger();
+        static final AtomicInteger teardowns = new AtomicInteger();
+        static final AtomicInteger calls = new AtomicInteger();
+        static final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        @BeforeAll
+        static void setup() {
+            setups.incrementAndGet();
+        }
+
+        @AfterAll
+        static void teardown() {
+            teardowns.incrementAndGet();
+        }
+
+        void test_Ok() throws Exception {
+            threads.add(Thread.currentThread());
+            Thread.sleep(5);
+        }
+
+        void test_Flaky() throws Exception {
+            Thread.sleep(5);
+            // Every other call fails, like an assertion failing under load
+            if (calls.incrementAndGet() % 2 == 0) {
+                assertEquals(200, 503);
+            }
+        }
+    }
+
+    /**
+     * One slow test among fast ones
+     */
+    static class StallingTests {
+        static final AtomicInteger calls = new AtomicInteger();
+        static final AtomicInteger inFlight = new AtomicInteger();
+        static final AtomicInteger maxInFlight = new AtomicInteger();
+
+        void test_Request() throws Exception {
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+                // The first call stalls like a server pause
+                Thread.sleep(calls.incrementAndGet() == 1 ? 250 : 1);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Setup fails before any load is generated
+     */
+    static class FailingSetupTests {
+        static final AtomicInteger teardowns = new AtomicInteger();
+
+        @BeforeAll
+        static void setup() {
+            throw new IllegalStateException("server unreachable");
+        }
+
+        @AfterAll
+        static void teardown() {
+            teardowns.incrementAndGet();
+        }
+
+        void test_Only() {
+        }
+    }
+
+    @Test
+    public void testUsersLoopUntilDurationAndCountFailures() throws Throwable {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+
+        LoadReport report = new LoadRunner(SampleTests.class).run(4, Duration.ofMillis(300), out);
+        String output = buffer.toString(StandardCharsets.UTF_8);
+
+        assertEquals(1, SampleTests.setups.get());
+        assertEquals(1, SampleTests.teardowns.get());
+        assertEquals(4, SampleTests.threads.size());
+
+        LoadReport.TestStats ok = report.getTests().get("Ok");
+        LoadReport.TestStats flaky = report.getTests().get("Flaky");
+        // Each user runs many iterations, not just one
+        assertTrue(ok.getIterations() > 8, "iterations: " + ok.getIterations());
+        assertEquals(0, ok.getFailures());
+        assertEquals(flaky.getIterations() / 2, flaky.getFailures(), 1);
+        assertEquals(flaky.getFailures(), (long) flaky.getErrors().get("expected: <200> but was: <503>"));
+
+        assertEquals(ok.getIterations() + flaky.getIterations(), report.getIterations());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getErrorRate() > 0.1 && report.getErrorRate() < 0.4);
+        assertTrue(output.contains("RUNNING LOAD: 4 users"));
+        assertTrue(output.contains("Throughput:"));
+    }
+
+    @Test
+    public void testArrivalRateKeepsScheduleDuringStall() throws Throwable {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+
+        LoadReport report = new LoadRunner(StallingTests.class).runAtRate(50, Duration.ofMillis(400), out);
+
+        // 50/s for 400 ms is 20 arrivals, whatever the server does
+        assertEquals(20, report.getIterations());
+        assertEquals(0, report.getFailures());
+        // Later arrivals did not wait for the stalled one
+        assertTrue(StallingTests.maxInFlight.get() > 1);
+        LoadReport.TestStats stats = report.getTests().get("Request");
+        assertTrue(stats.getMaxMillis() >= 250);
+        // The stall shows in the tail, measured from the intended start, but not at the median
+        assertTrue(stats.getPercentileMillis(99.9) >= 250, "p99.9: " + stats.getPercentileMillis(99.9));
+        assertTrue(stats.getPercentileMillis(50) < 250, "p50: " + stats.getPercentileMillis(50));
+        String output = buffer.toString(StandardCharsets.UTF_8);
+        assertTrue(output.contains("RUNNING LOAD: 50.0 tests/s"));
+        assertTrue(output.contains(" ms p99.9 "));
+    }
+
+    @Test
+    public void testTeardownRunsWhenSetupThrows() throws Throwable {
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        LoadRunner runner = new LoadRunner(FailingSetupTests.class);
+
+        assertThrows(IllegalStateException.class, () -> runner.run(2, Duration.ofMillis(50), out));
+        assertEquals(1, FailingSetupTests.teardowns.get());
+
+        assertThrows(IllegalStateException.class, () -> runner.runAtRate(100, Duration.ofMillis(50), out));
+        assertEquals(2, FailingSetupTests.teardowns.get());
+    }
+}
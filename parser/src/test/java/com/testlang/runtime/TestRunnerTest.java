@@ -0,0 +1,102 @@
+package com.testlang.runtime;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the reflective parallel test runner
+ */
+public class TestRunnerTest {
+
+    /**
+     * Stand-in for a generated test class
+     */
+    static class SampleTests {
+        static boolean setupCalled;
+        static final CountDownLatch started = new CountDownLatch(2);
+
+        @BeforeAll
+        static void setup() {
+            setupCalled = true;
+        }
+
+        void test_First() throws Exception {
+            // Only completes if the second test is running at the same time
+            started.countDown();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+
+        void test_Second() throws Exception {
+            started.countDown();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+
+        void test_Broken() {
+            assertEquals(200, 404);
+        }
+
+        void helper() {
+            fail("not a test method");
+        }
+    }
+
+    /**
+     * Setup fails, as when the BeforeAll warmup cannot reach the server
+     */
+    static class FailingSetupTests {
+        static boolean teardownCalled;
+
+        @BeforeAll
+        static void setup() {
+            throw new IllegalStateException("server unreachable");
+        }
+
+        @AfterAll
+        static void teardown() {
+            teardownCalled = true;
+        }
+
+        void test_Only() {
+        }
+    }
+
+    @Test
+    public void testRunsAllTestsConcurrently() throws Throwable {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+
+        List<TestResult> results = new TestRunner(SampleTests.class).run(0, out);
+        String output = buffer.toString(StandardCharsets.UTF_8);
+
+        assertTrue(SampleTests.setupCalled);
+        assertEquals(3, results.size());
+        for (TestResult result : results) {
+            assertEquals(!result.getName().equals("Broken"), result.isPassed(), result.getName());
+        }
+        assertTrue(output.contains("✓ First Test PASSED"));
+        assertTrue(output.contains("✗ Broken Test FAILED: expected: <200> but was: <404>"));
+        assertTrue(output.contains("Total:  3"));
+        assertTrue(output.contains("Failed: 1"));
+    }
+
+    @Test
+    public void testTeardownRunsWhenSetupThrows() throws Throwable {
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> new TestRunner(FailingSetupTests.class).run(0, out));
+
+        assertEquals("server unreachable", error.getMessage());
+        assertTrue(FailingSetupTests.teardownCalled);
+    }
+}